@@ -0,0 +1,387 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+
+/**
+ * Persistent catalog of the files in a directory and its subdirectories, stored in a compact binary file.
+ * Each directory is stored with its modification time, the names of its subdirectories, and the name,
+ * size, modification time and flags of its files.
+ *
+ * <p>When the index is refreshed, the modification time of every directory is read and only the
+ * directories whose modification time changed since the index was saved are listed again, the rest are
+ * taken from the index file. Note that the modification time of a directory changes when entries are
+ * created, deleted or renamed in it, but not when the content of one of its files is modified, so the size
+ * of a file rewritten in place is not updated until its directory changes.</p>
+ *
+ * <p>A directory is also listed again if its modification time was within {@value #TIMESTAMP_GRANULARITY_MILLIS}
+ * milliseconds of the time it was listed, since on file systems with coarse timestamps an entry created
+ * just after the listing would leave the same modification time.</p>
+ *
+ * <p>The index file is left out of the scan if it is in the indexed directory tree. If it is in a subdirectory,
+ * such as a cache directory holding the index files of several directories, the whole subdirectory is left out.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class DirectoryIndex {
+
+    private static final int MAGIC_NUMBER = 0x52464349;                 // "RFCI"
+    private static final int FORMAT_VERSION = 1;
+    private static final byte HIDDEN_FLAG = 1;
+    private static final byte REGULAR_FILE_FLAG = 2;
+    private static final long TIMESTAMP_GRANULARITY_MILLIS = 2000;
+    private static final long UNSTABLE_MODIFICATION_TIME = Long.MIN_VALUE;
+
+    private final Path rootDirectory;
+    private final Path indexFile;
+    private final String indexDirectoryPath;
+    private int rescannedDirectories;
+    private int reusedDirectories;
+
+    /**
+     * Default constructor
+     *
+     * @param rootDirectory The directory to index
+     * @param indexFile     The file where the index is stored
+     */
+    public DirectoryIndex(Path rootDirectory, Path indexFile) {
+        this.rootDirectory = rootDirectory;
+        this.indexFile = indexFile;
+        Path absoluteRoot = rootDirectory.toAbsolutePath().normalize();
+        Path indexDirectory = indexFile.toAbsolutePath().normalize().getParent();
+        if (indexDirectory != null && indexDirectory.startsWith(absoluteRoot)) {
+            StringJoiner relativePath = new StringJoiner("/");
+            absoluteRoot.relativize(indexDirectory).forEach(name -> relativePath.add(name.toString()));
+            indexDirectoryPath = relativePath.toString();
+        }
+        else
+            indexDirectoryPath = null;
+    }
+
+    /**
+     * Returns the file where the index of a directory is stored inside a cache directory,
+     * named after a hash of the absolute path of the indexed directory.
+     *
+     * @param cacheDirectory The directory that contains the index files
+     * @param rootDirectory  The indexed directory
+     *
+     * @return The {@code Path} of the index file
+     */
+    public static Path indexFileIn(Path cacheDirectory, Path rootDirectory) {
+        Path absoluteRoot = rootDirectory.toAbsolutePath().normalize();
+        Path rootName = absoluteRoot.getFileName();
+        String name = (rootName == null ? "root" : rootName.toString()) + "-" +
+                Integer.toHexString(absoluteRoot.toString().hashCode()) + ".idx";
+        return cacheDirectory.resolve(name);
+    }
+
+    /**
+     * Updates the index revalidating the directories whose modification time changed, saves it,
+     * and retrieves a {@link List} of {@link FileEntry} satisfying the given {@link FileAttributesFilter}.
+     * If the index file does not exist, or it can't be read, all the directories are listed.
+     * If the thread is interrupted the directories left are skipped and the index is not saved.
+     *
+     * @param filter The {@code FileAttributesFilter} condition
+     *
+     * @return The list containing the entries
+     *
+     * @throws IOException Thrown if the index file could not be written
+     */
+    public List<FileEntry> refreshed(FileAttributesFilter filter) throws IOException {
+        if (! Files.isDirectory(rootDirectory))
+            throw new IllegalArgumentException("Provided root directory is a file or does not exist");
+
+        rescannedDirectories = 0;
+        reusedDirectories = 0;
+        Map<String, DirectoryRecord> savedDirectories = load();
+        Map<String, DirectoryRecord> currentDirectories = new LinkedHashMap<>(savedDirectories.size() * 2);
+        List<FileEntry> entries = new ArrayList<>();
+        visitDirectory(rootDirectory, "", savedDirectories, currentDirectories, new ArrayDeque<>(), filter, entries);
+
+        if (! Thread.currentThread().isInterrupted())
+            save(currentDirectories);
+        return entries;
+    }
+
+    private void visitDirectory(Path directory, String relativePath, Map<String, DirectoryRecord> savedDirectories,
+                                Map<String, DirectoryRecord> currentDirectories, Deque<Object> ancestorKeys,
+                                FileAttributesFilter filter, List<FileEntry> entries) {
+        BasicFileAttributes directoryAttributes;
+        try {
+            directoryAttributes = Files.readAttributes(directory, BasicFileAttributes.class);
+        }
+        catch (IOException exception) {
+            return;
+        }
+        Object fileKey = directoryAttributes.fileKey();
+        if (fileKey != null && ancestorKeys.contains(fileKey))
+            return;                                                     // Symbolic link cycle
+        if (! relativePath.isEmpty() && relativePath.equals(indexDirectoryPath))
+            return;                                                     // Directory of the index file
+
+        long lastModified = directoryAttributes.lastModifiedTime().toMillis();
+        DirectoryRecord record = savedDirectories.get(relativePath);
+        if (record == null || record.lastModified != lastModified) {
+            record = listDirectory(directory, lastModified, relativePath.isEmpty() && "".equals(indexDirectoryPath));
+            if (record == null)
+                return;
+            rescannedDirectories++;
+        }
+        else
+            reusedDirectories++;
+        currentDirectories.put(relativePath, record);
+
+        for (IndexedFile file : record.files) {
+            Path filePath = directory.resolve(file.name);
+            if (filter.accept(filePath, file))
+                entries.add(new FileEntry(filePath, file.size, file.lastModified));
+        }
+
+        ancestorKeys.push(fileKey == null ? directory : fileKey);
+        for (String subdirectory : record.subdirectories) {
+            if (Thread.currentThread().isInterrupted())
+                break;
+            String subdirectoryPath = relativePath.isEmpty() ? subdirectory : relativePath + "/" + subdirectory;
+            visitDirectory(directory.resolve(subdirectory), subdirectoryPath, savedDirectories, currentDirectories,
+                           ancestorKeys, filter, entries);
+        }
+        ancestorKeys.pop();
+    }
+
+    /**
+     * Lists the entries of a directory. If its modification time is too close to the time of the listing to tell
+     * it from the one of a later change, it is saved as unstable, so the directory is listed again in the next refresh.
+     *
+     * @param containsIndex Whether the index file, and its temporary files, are among the entries and must be left out
+     */
+    private DirectoryRecord listDirectory(Path directory, long lastModified, boolean containsIndex) {
+        String indexFileName = indexFile.getFileName().toString();
+        List<String> subdirectories = new ArrayList<>();
+        List<IndexedFile> files = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+            for (Path path : directoryStream) {
+                if (containsIndex && path.getFileName().toString().startsWith(indexFileName))
+                    continue;
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                }
+                catch (IOException exception) {
+                    continue;
+                }
+                String name = path.getFileName().toString();
+                if (attributes.isDirectory())
+                    subdirectories.add(name);
+                else {
+                    boolean hidden = attributes instanceof DosFileAttributes
+                            ? ((DosFileAttributes) attributes).isHidden()
+                            : name.startsWith(".");
+                    byte flags = (byte) ((hidden ? HIDDEN_FLAG : 0) | (attributes.isRegularFile() ? REGULAR_FILE_FLAG : 0));
+                    files.add(new IndexedFile(name, attributes.size(), attributes.lastModifiedTime().toMillis(), flags));
+                }
+            }
+        }
+        catch (IOException | DirectoryIteratorException exception) {
+            return null;
+        }
+        boolean unstable = lastModified >= System.currentTimeMillis() - TIMESTAMP_GRANULARITY_MILLIS;
+        DirectoryRecord record = new DirectoryRecord(unstable ? UNSTABLE_MODIFICATION_TIME : lastModified);
+        record.subdirectories.addAll(subdirectories);
+        record.files.addAll(files);
+        return record;
+    }
+
+    private Map<String, DirectoryRecord> load() {
+        Map<String, DirectoryRecord> directories = new HashMap<>();
+        if (! Files.isRegularFile(indexFile))
+            return directories;
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (input.readInt() != MAGIC_NUMBER || input.readInt() != FORMAT_VERSION)
+                return directories;
+            if (! input.readUTF().equals(rootDirectory.toAbsolutePath().normalize().toString()))
+                return directories;
+
+            int directoriesCount = input.readInt();
+            for (int d = 0; d < directoriesCount; d++) {
+                String relativePath = input.readUTF();
+                DirectoryRecord record = new DirectoryRecord(input.readLong());
+                int subdirectoriesCount = input.readInt();
+                for (int s = 0; s < subdirectoriesCount; s++)
+                    record.subdirectories.add(input.readUTF());
+                int filesCount = input.readInt();
+                for (int f = 0; f < filesCount; f++)
+                    record.files.add(new IndexedFile(input.readUTF(), input.readLong(), input.readLong(), input.readByte()));
+                directories.put(relativePath, record);
+            }
+        }
+        catch (IOException exception) {
+            directories.clear();                                        // Corrupt index, list everything again
+        }
+        return directories;
+    }
+
+    private void save(Map<String, DirectoryRecord> directories) throws IOException {
+        Path parent = indexFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporaryFile = Files.createTempFile(parent, indexFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                output.writeInt(MAGIC_NUMBER);
+                output.writeInt(FORMAT_VERSION);
+                output.writeUTF(rootDirectory.toAbsolutePath().normalize().toString());
+                output.writeInt(directories.size());
+                for (Map.Entry<String, DirectoryRecord> directory : directories.entrySet()) {
+                    DirectoryRecord record = directory.getValue();
+                    output.writeUTF(directory.getKey());
+                    output.writeLong(record.lastModified);
+                    output.writeInt(record.subdirectories.size());
+                    for (String subdirectory : record.subdirectories)
+                        output.writeUTF(subdirectory);
+                    output.writeInt(record.files.size());
+                    for (IndexedFile file : record.files) {
+                        output.writeUTF(file.name);
+                        output.writeLong(file.size);
+                        output.writeLong(file.lastModified);
+                        output.writeByte(file.flags);
+                    }
+                }
+            }
+            Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Returns the number of directories that were listed again in the last refresh
+     *
+     * @return The number of directories listed
+     */
+    public int getRescannedDirectories() {
+        return rescannedDirectories;
+    }
+
+    /**
+     * Returns the number of directories that were taken from the index file in the last refresh
+     *
+     * @return The number of directories reused
+     */
+    public int getReusedDirectories() {
+        return reusedDirectories;
+    }
+
+    private static class DirectoryRecord {
+
+        private final long lastModified;
+        private final List<String> subdirectories = new ArrayList<>();
+        private final List<IndexedFile> files = new ArrayList<>();
+
+        DirectoryRecord(long lastModified) {
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * A file stored in the index, that also serves as its attributes for the filters
+     */
+    private static class IndexedFile implements DosFileAttributes {
+
+        private final String name;
+        private final long size;
+        private final long lastModified;
+        private final byte flags;
+
+        IndexedFile(String name, long size, long lastModified, byte flags) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.flags = flags;
+        }
+
+        @Override
+        public FileTime lastModifiedTime() {
+            return FileTime.fromMillis(lastModified);
+        }
+
+        @Override
+        public FileTime lastAccessTime() {
+            return lastModifiedTime();
+        }
+
+        @Override
+        public FileTime creationTime() {
+            return lastModifiedTime();
+        }
+
+        @Override
+        public boolean isRegularFile() {
+            return (flags & REGULAR_FILE_FLAG) != 0;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+
+        @Override
+        public boolean isSymbolicLink() {
+            return false;
+        }
+
+        @Override
+        public boolean isOther() {
+            return ! isRegularFile();
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public Object fileKey() {
+            return null;
+        }
+
+        @Override
+        public boolean isReadOnly() {
+            return false;
+        }
+
+        @Override
+        public boolean isHidden() {
+            return (flags & HIDDEN_FLAG) != 0;
+        }
+
+        @Override
+        public boolean isArchive() {
+            return false;
+        }
+
+        @Override
+        public boolean isSystem() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+
+/**
+ * A filter for paths whose attributes have already been read, so that
+ * the filter does not need to query the file system again.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+@FunctionalInterface
+public interface FileAttributesFilter {
+
+    /**
+     * Tests whether or not the given path should be accepted
+     *
+     * @param path       The path to be tested
+     * @param attributes The already read attributes of the path
+     *
+     * @return {@code true} if and only if the path should be accepted
+     */
+    boolean accept(Path path, BasicFileAttributes attributes);
+}
@@ -0,0 +1,190 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Compact, append-only catalog of files with random access by index.
+ *
+ * <p>Instead of one object per file, the catalog is stored in columns: the parent directories are stored
+ * once in a table of directories, the file names are encoded in UTF-8 in a shared byte arena, and the sizes,
+ * modification times, parent directories and name offsets are kept in primitive arrays. A {@link Path} or a
+ * {@link FileEntry} is only created when it is requested for a given index.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class FileCatalog {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final List<Path> directories = new ArrayList<>();
+    private final Map<Path, Integer> directoryIndexes = new HashMap<>();
+    private Path lastDirectory;
+    private int lastDirectoryIndex = - 1;
+
+    private byte[] namesArena = new byte[INITIAL_CAPACITY * 16];
+    private int namesArenaLength;
+    private int[] nameOffsets = new int[INITIAL_CAPACITY + 1];
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private long[] sizes = new long[INITIAL_CAPACITY];
+    private long[] lastModifiedTimes = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Adds a file to the catalog
+     *
+     * @param entry The {@link FileEntry} of the file
+     *
+     * @return The index of the file in the catalog
+     */
+    public int add(FileEntry entry) {
+        return add(entry.getPath(), entry.getSize(), entry.getLastModified());
+    }
+
+    /**
+     * Adds a file to the catalog
+     *
+     * @param file         The path of the file
+     * @param fileSize     The size of the file in bytes
+     * @param lastModified The last modification time of the file, in milliseconds since the epoch
+     *
+     * @return The index of the file in the catalog
+     */
+    public int add(Path file, long fileSize, long lastModified) {
+        ensureCapacity(size + 1);
+        byte[] name = file.getFileName().toString().getBytes(StandardCharsets.UTF_8);
+        ensureArenaCapacity(namesArenaLength + name.length);
+        System.arraycopy(name, 0, namesArena, namesArenaLength, name.length);
+        namesArenaLength += name.length;
+
+        parents[size] = directoryIndex(file.getParent());
+        sizes[size] = fileSize;
+        lastModifiedTimes[size] = lastModified;
+        nameOffsets[size + 1] = namesArenaLength;
+        return size++;
+    }
+
+    /**
+     * Returns the index of a directory in the table of directories, adding it if it's not there.
+     * Files are usually added grouped by directory, so the last directory is checked first.
+     */
+    private int directoryIndex(Path directory) {
+        if (lastDirectoryIndex != - 1 && Objects.equals(directory, lastDirectory))
+            return lastDirectoryIndex;
+        Integer index = directoryIndexes.get(directory);
+        if (index == null) {
+            index = directories.size();
+            directories.add(directory);
+            directoryIndexes.put(directory, index);
+        }
+        lastDirectory = directory;
+        lastDirectoryIndex = index;
+        return index;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > sizes.length) {
+            int newCapacity = Math.max(capacity, sizes.length + (sizes.length >> 1));
+            nameOffsets = Arrays.copyOf(nameOffsets, newCapacity + 1);
+            parents = Arrays.copyOf(parents, newCapacity);
+            sizes = Arrays.copyOf(sizes, newCapacity);
+            lastModifiedTimes = Arrays.copyOf(lastModifiedTimes, newCapacity);
+        }
+    }
+
+    private void ensureArenaCapacity(int capacity) {
+        if (capacity < 0)
+            throw new IllegalStateException("File names exceed the capacity of the catalog");
+        if (capacity > namesArena.length)
+            namesArena = Arrays.copyOf(namesArena, (int) Math.min(Integer.MAX_VALUE - 8,
+                                                                  Math.max(capacity, namesArena.length * 3L / 2)));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getSize(int index) {
+        checkIndex(index);
+        return sizes[index];
+    }
+
+    public long getLastModified(int index) {
+        checkIndex(index);
+        return lastModifiedTimes[index];
+    }
+
+    public String getFileName(int index) {
+        checkIndex(index);
+        int offset = nameOffsets[index];
+        return new String(namesArena, offset, nameOffsets[index + 1] - offset, StandardCharsets.UTF_8);
+    }
+
+    public Path getDirectory(int index) {
+        checkIndex(index);
+        return directories.get(parents[index]);
+    }
+
+    /**
+     * Creates the {@link Path} of the file at the given index
+     *
+     * @param index The index of the file
+     *
+     * @return The {@code Path} of the file
+     */
+    public Path getPath(int index) {
+        Path directory = getDirectory(index);
+        String fileName = getFileName(index);
+        return directory == null ? Paths.get(fileName) : directory.resolve(fileName);
+    }
+
+    /**
+     * Creates the {@link FileEntry} of the file at the given index
+     *
+     * @param index The index of the file
+     *
+     * @return The {@code FileEntry} of the file
+     */
+    public FileEntry getEntry(int index) {
+        return new FileEntry(getPath(index), sizes[index], lastModifiedTimes[index]);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    /**
+     * Removes all the files from the catalog, keeping the allocated capacity
+     */
+    public void clear() {
+        directories.clear();
+        directoryIndexes.clear();
+        lastDirectory = null;
+        lastDirectoryIndex = - 1;
+        namesArenaLength = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,297 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+
+/**
+ * Retrieves a {@link List} of {@link FileEntry} that are in a directory and any of the subdirectories
+ * in that directory satisfying a condition specified by a {@link FileAttributesFilter}.
+ * If {@code maxFilesRequired} is 0 all the files will be retrieved.
+ *
+ * <p>The directory tree is walked with {@link Files#walkFileTree}, which reads the
+ * {@link BasicFileAttributes} of each entry only once. Those attributes are given to the filter
+ * and kept in the resulting {@code FileEntry}, so neither the filtering nor the later use of the
+ * size or the modification time of the files query the file system again.
+ * Symbolic links to directories are followed, and entries that can't be read are skipped.</p>
+ *
+ * <p>Alternatively, {@link #stream(FileAttributesFilter)} yields the entries lazily as they are found,
+ * holding in memory only the stack of directories being read.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ * @see FilesInDirectory
+ */
+public class FileEntriesInDirectory {
+
+    private Path rootDirectory;
+    private final LongAdder directoriesScanned = new LongAdder();
+
+    /**
+     * Default constructor
+     *
+     * @param rootDirectory The directory from within to find the files
+     */
+    public FileEntriesInDirectory(Path rootDirectory) {
+        this.rootDirectory = rootDirectory;
+    }
+
+    public List<FileEntry> filtered(FileAttributesFilter filter) {
+        return filteredAndBounded(filter, 0);
+    }
+
+    /**
+     * Retrieves a {@link List} with at most {@code maxFilesRequired} entries that are in a directory or
+     * any of the subdirectories in that directory satisfying a condition specified by a {@link FileAttributesFilter}.
+     * If {@code maxFilesRequired} is 0 all the files will be retrieved.
+     *
+     * @param filter           The {@code FileAttributesFilter} condition
+     * @param maxFilesRequired Maximum number of files required. 0 means no maximum
+     *
+     * @return The list containing all the entries
+     *
+     * @throws IllegalArgumentException Thrown if {@code maxFilesRequired} argument is less than zero
+     * @throws UncheckedIOException     Thrown if the root directory could not be walked
+     */
+    public List<FileEntry> filteredAndBounded(FileAttributesFilter filter, int maxFilesRequired) {
+        List<FileEntry> entries = new ArrayList<>();
+        if (! Thread.currentThread().isInterrupted()) {
+            if (maxFilesRequired < 0)
+                throw new IllegalArgumentException("maxFilesRequired argument less than zero");
+            if (rootDirectory == null || filter == null)
+                throw new IllegalArgumentException("directory or filter null");
+            if (! Files.isDirectory(rootDirectory))
+                throw new IllegalArgumentException("Provided root directory is a file or does not exist");
+
+            try {
+                Set<FileVisitOption> options = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
+                Files.walkFileTree(rootDirectory, options, Integer.MAX_VALUE,
+                                   new FilteringVisitor(filter, maxFilesRequired, entries, directoriesScanned));
+            }
+            catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns a lazy {@link Stream} of the entries that are in a directory or any of the subdirectories
+     * in that directory satisfying a condition specified by a {@link FileAttributesFilter}.
+     * The directory tree is read as the stream is consumed, depth first, keeping open only the directories
+     * from the root to the one being read. The stream ends early if the consuming thread is interrupted.
+     * The stream should be closed if it is not fully consumed, in order to release the open directories.
+     *
+     * @param filter The {@code FileAttributesFilter} condition
+     *
+     * @return The stream of entries
+     *
+     * @throws UncheckedIOException Thrown if the root directory could not be opened
+     */
+    public Stream<FileEntry> stream(FileAttributesFilter filter) {
+        if (rootDirectory == null || filter == null)
+            throw new IllegalArgumentException("directory or filter null");
+        if (! Files.isDirectory(rootDirectory))
+            throw new IllegalArgumentException("Provided root directory is a file or does not exist");
+
+        LazyEntryIterator iterator = new LazyEntryIterator(rootDirectory, filter, directoriesScanned);
+        Spliterator<FileEntry> spliterator =
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    /**
+     * Returns the number of directories read so far by the scans of this object.
+     * It can be called from other threads while a scan is running.
+     *
+     * @return The number of directories read
+     */
+    public long getDirectoriesScanned() {
+        return directoriesScanned.sum();
+    }
+
+    /**
+     * Collects the accepted files until the maximum required is reached or the thread is interrupted
+     */
+    private static class FilteringVisitor extends SimpleFileVisitor<Path> {
+
+        private final FileAttributesFilter filter;
+        private final int maxFilesRequired;
+        private final List<FileEntry> entries;
+        private final LongAdder directoriesScanned;
+
+        FilteringVisitor(FileAttributesFilter filter, int maxFilesRequired, List<FileEntry> entries,
+                         LongAdder directoriesScanned) {
+            this.filter = filter;
+            this.maxFilesRequired = maxFilesRequired;
+            this.entries = entries;
+            this.directoriesScanned = directoriesScanned;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+            directoriesScanned.increment();
+            return Thread.currentThread().isInterrupted() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+            if (filter.accept(file, attributes))
+                entries.add(FileEntry.of(file, attributes));
+            if (maxFilesRequired > 0 && entries.size() == maxFilesRequired)
+                return FileVisitResult.TERMINATE;
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exception) {
+            return FileVisitResult.CONTINUE;
+        }
+    }
+
+    /**
+     * Iterates over the accepted files of a directory tree, reading a directory only when
+     * the entries of the previous ones have been consumed
+     */
+    private static class LazyEntryIterator implements Iterator<FileEntry> {
+
+        private final FileAttributesFilter filter;
+        private final Deque<DirectoryFrame> directoryStack = new ArrayDeque<>();
+        private final LongAdder directoriesScanned;
+        private FileEntry nextEntry;
+
+        LazyEntryIterator(Path rootDirectory, FileAttributesFilter filter, LongAdder directoriesScanned) {
+            this.filter = filter;
+            this.directoriesScanned = directoriesScanned;
+            try {
+                BasicFileAttributes rootAttributes = Files.readAttributes(rootDirectory, BasicFileAttributes.class);
+                directoryStack.push(new DirectoryFrame(rootDirectory, rootAttributes.fileKey()));
+                directoriesScanned.increment();
+            }
+            catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextEntry == null)
+                nextEntry = advance();
+            return nextEntry != null;
+        }
+
+        @Override
+        public FileEntry next() {
+            if (! hasNext())
+                throw new NoSuchElementException();
+            FileEntry entry = nextEntry;
+            nextEntry = null;
+            return entry;
+        }
+
+        private FileEntry advance() {
+            FileEntry entry = null;
+            while (entry == null && ! directoryStack.isEmpty()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    close();
+                    break;
+                }
+                DirectoryFrame frame = directoryStack.peek();
+                Path path = frame.nextPath();
+                if (path == null) {
+                    directoryStack.pop().close();
+                    continue;
+                }
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                }
+                catch (IOException exception) {
+                    continue;
+                }
+                if (attributes.isDirectory())
+                    pushDirectory(path, attributes.fileKey());
+                else if (filter.accept(path, attributes))
+                    entry = FileEntry.of(path, attributes);
+            }
+            return entry;
+        }
+
+        private void pushDirectory(Path directory, Object fileKey) {
+            if (fileKey != null)
+                for (DirectoryFrame ancestor : directoryStack)
+                    if (fileKey.equals(ancestor.fileKey))
+                        return;                                 // Symbolic link cycle
+            try {
+                directoryStack.push(new DirectoryFrame(directory, fileKey));
+                directoriesScanned.increment();
+            }
+            catch (UncheckedIOException exception) {
+                // Unreadable directory, skipped as in walkFileTree
+            }
+        }
+
+        void close() {
+            while (! directoryStack.isEmpty())
+                directoryStack.pop().close();
+        }
+    }
+
+    /**
+     * An open directory of the stack of a {@link LazyEntryIterator}
+     */
+    private static class DirectoryFrame {
+
+        private final Object fileKey;
+        private final DirectoryStream<Path> directoryStream;
+        private final Iterator<Path> paths;
+
+        DirectoryFrame(Path directory, Object fileKey) {
+            this.fileKey = fileKey;
+            try {
+                directoryStream = Files.newDirectoryStream(directory);
+            }
+            catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+            paths = directoryStream.iterator();
+        }
+
+        Path nextPath() {
+            try {
+                return paths.hasNext() ? paths.next() : null;
+            }
+            catch (DirectoryIteratorException exception) {
+                return null;
+            }
+        }
+
+        void close() {
+            try {
+                directoryStream.close();
+            }
+            catch (IOException exception) {
+                // Nothing to do, the directory was only read
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+
+/**
+ * Immutable snapshot of a file and the attributes that were read when it was found,
+ * so that its size or modification time can be used later without querying the file system again.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class FileEntry {
+
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+
+    /**
+     * Default constructor
+     *
+     * @param path         The path of the file
+     * @param size         The size of the file in bytes
+     * @param lastModified The last modification time of the file, in milliseconds since the epoch
+     */
+    public FileEntry(Path path, long size, long lastModified) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Creates a {@code FileEntry} from the attributes already read of a file
+     *
+     * @param path       The path of the file
+     * @param attributes The {@link BasicFileAttributes} of the file
+     *
+     * @return The new {@code FileEntry}
+     */
+    public static FileEntry of(Path path, BasicFileAttributes attributes) {
+        return new FileEntry(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+    /**
+     * Creates a {@code FileEntry} reading the attributes of a file
+     *
+     * @param file The file
+     *
+     * @return The new {@code FileEntry}
+     *
+     * @throws UncheckedIOException Thrown if the attributes of the file could not be read
+     */
+    public static FileEntry of(File file) {
+        Path path = file.toPath();
+        try {
+            return of(path, Files.readAttributes(path, BasicFileAttributes.class));
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        FileEntry that = (FileEntry) o;
+        return size == that.size && lastModified == that.lastModified && Objects.equals(path, that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, size, lastModified);
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
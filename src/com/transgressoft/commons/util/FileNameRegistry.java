@@ -0,0 +1,99 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * In-memory registry of the file names taken in a directory, that gives unique names to new files
+ * appending (1), (2)... (n) to the name before its extension. The names in the directory are listed
+ * once, the first time a name is reserved, and each taken name keeps the next number to try, so a
+ * unique name is given without querying the file system for every candidate, even if the same name
+ * is repeated many times.
+ *
+ * <p>The names are reserved atomically, so concurrent threads never get the same name. Files created
+ * in the directory by others after the listing are not known by the registry, so a file should be
+ * created failing if it exists, and a new name reserved in that case.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class FileNameRegistry {
+
+    private final Path directory;
+    private final Map<String, Integer> nextNumbers = new HashMap<>();
+    private Set<String> takenNames;
+
+    /**
+     * Default constructor
+     *
+     * @param directory The directory whose file names are registered
+     */
+    public FileNameRegistry(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns a file name that is not taken in the directory and takes it
+     *
+     * @param fileName The desired file name
+     *
+     * @return The desired file name if it was not taken, or a numbered variant of it otherwise
+     *
+     * @throws IOException If the directory could not be listed
+     */
+    public synchronized String reserve(String fileName) throws IOException {
+        if (takenNames == null)
+            takenNames = listedNames();
+        if (takenNames.add(fileName))
+            return fileName;
+
+        int number = nextNumbers.getOrDefault(fileName, 1);
+        String numberedName;
+        while (! takenNames.add(numberedName = numberedName(fileName, number)))
+            number++;
+        nextNumbers.put(fileName, number + 1);
+        return numberedName;
+    }
+
+    /**
+     * Returns the file name with a number between parentheses before its extension,
+     * or at the end if it has no extension
+     *
+     * @param fileName The file name
+     * @param number   The number to append
+     *
+     * @return The numbered file name
+     */
+    public static String numberedName(String fileName, int number) {
+        int extensionPosition = fileName.lastIndexOf('.');
+        if (extensionPosition <= 0)
+            return fileName + "(" + number + ")";
+        return fileName.substring(0, extensionPosition) + "(" + number + ")" + fileName.substring(extensionPosition);
+    }
+
+    private Set<String> listedNames() throws IOException {
+        Set<String> names = new HashSet<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+            for (Path file : directoryStream)
+                names.add(file.getFileName().toString());
+        }
+        return names;
+    }
+}
@@ -71,16 +71,33 @@ public class FilesInDirectory {
             if (! rootDirectory.exists() || ! rootDirectory.isDirectory())
                 throw new IllegalArgumentException("Provided root directory is a file or does not exist");
 
-            int remainingFiles = addFilesRegardingMaxRequired(rootDirectory.listFiles(filter));
-
-            if (maxFilesRequired == 0 || remainingFiles > 0) {
-                File[] rootSubdirectories = rootDirectory.listFiles(File::isDirectory);
-                addFilesFromDirectories(rootSubdirectories, remainingFiles);
-            }
+            addFilesInDirectory(rootDirectory);
         }
         return files;
     }
 
+    /**
+     * Adds the files of a directory, and recursively the ones of its subdirectories,
+     * to the {@link List} regarding the maximum required. All the recursion levels
+     * append to the same {@code List}, so no intermediate lists are created.
+     *
+     * @param directory The folder where the files are
+     */
+    private void addFilesInDirectory(File directory) {
+        File[] subFiles = directory.listFiles(filter);
+        if (subFiles == null)
+            return;
+        addFilesRegardingMaxRequired(subFiles);
+        if (isMaxReached())
+            return;
+
+        File[] subdirectories = directory.listFiles(File::isDirectory);
+        int subdirectoriesCount = 0;
+        while (subdirectories != null && subdirectoriesCount < subdirectories.length && ! isMaxReached()
+                && ! Thread.currentThread().isInterrupted())
+            addFilesInDirectory(subdirectories[subdirectoriesCount++]);
+    }
+
     /**
      * Add files to the {@link List} regarding the maximum required.
      * <ul>
@@ -88,50 +105,23 @@ public class FilesInDirectory {
      * If it's 0, all files are added.
      * </li>
      * <li>
-     * If it's greater than the actual number of files, all files are added too.
+     * If it's greater than the actual number of files plus the ones already added, all files are added too.
      * </li>
      * <li>
-     * If it's less than the actual number of files, the required number
-     * of files are added
+     * Otherwise, only the remaining required number of files are added
      * </li>
      * </ul>
      *
      * @param subFiles A {@code File} {@code Array} to add to the collection
-     *
-     * @return The number of files that were not added from the {@code Array}
      */
-    private int addFilesRegardingMaxRequired(File[] subFiles) {
-        int remainingFiles = maxFilesRequired;
-        if (maxFilesRequired == 0)                              // No max = add all files
-            files.addAll(Arrays.asList(subFiles));
-        else if (maxFilesRequired < subFiles.length) {          // There are more valid files than the required
-            files.addAll(Arrays.asList(Arrays.copyOfRange(subFiles, 0, maxFilesRequired)));
-            remainingFiles -= files.size();                     // Zero files remaining in the directory
-        }
-        else if (subFiles.length > 0) {
-            files.addAll(Arrays.asList(subFiles));             // Add all valid files
-            remainingFiles -= files.size();
-        }
-        return remainingFiles;
+    private void addFilesRegardingMaxRequired(File[] subFiles) {
+        int filesToAdd = subFiles.length;
+        if (maxFilesRequired > 0)
+            filesToAdd = Math.min(filesToAdd, maxFilesRequired - files.size());
+        files.addAll(Arrays.asList(subFiles).subList(0, filesToAdd));
     }
 
-    /**
-     * Adds files to the {@link List} from several directories regarding the remaining required
-     *
-     * @param directories    The folders where the files are
-     * @param remainingFiles The remaining number of files to add
-     */
-    private void addFilesFromDirectories(File[] directories, int remainingFiles) {
-        int subdirectoriesCount = 0;
-        int remaining = remainingFiles;
-        while ((subdirectoriesCount < directories.length) && ! Thread.currentThread().isInterrupted()) {
-            File subdirectory = directories[subdirectoriesCount++];
-            List<File> subdirectoryFiles = new FilesInDirectory(subdirectory).filteredAndBounded(filter, remaining);
-            files.addAll(subdirectoryFiles);
-            if (remaining > 0)
-                remaining = maxFilesRequired - files.size();
-            if (maxFilesRequired > 0 && remaining == 0)
-                break;
-        }
+    private boolean isMaxReached() {
+        return maxFilesRequired > 0 && files.size() >= maxFilesRequired;
     }
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * Histogram of non negative values, such as latencies, with a fixed memory footprint and a bounded
+ * relative error, in the manner of HdrHistogram. Its values can be recorded concurrently by several threads.
+ *
+ * <p>The values below 256 are counted exactly. Above that, every power of two range is split in 128
+ * linear sub-buckets, so the value reported for a percentile is the upper bound of a sub-bucket, which is
+ * less than 1% greater than the actual values. Recording a value is a couple of bit operations and an
+ * atomic increment, with no allocation. The values greater than the highest trackable value are counted
+ * in the highest sub-bucket, whose percentiles are reported as the maximum, which is kept exactly.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+    private final long highestTrackableValue;
+    private final AtomicLongArray counts;
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private final LongAccumulator maxValue = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Default constructor
+     *
+     * @param highestTrackableValue The highest value that is counted with the precision of the histogram
+     *
+     * @throws IllegalArgumentException Thrown if {@code highestTrackableValue} is less than one
+     */
+    public LatencyHistogram(long highestTrackableValue) {
+        if (highestTrackableValue < 1)
+            throw new IllegalArgumentException("highestTrackableValue argument less than one");
+        this.highestTrackableValue = highestTrackableValue;
+        counts = new AtomicLongArray(countsIndex(highestTrackableValue) + 1);
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value The value to record
+     */
+    public void record(long value) {
+        long recordedValue = Math.max(0, value);
+        counts.incrementAndGet(countsIndex(Math.min(recordedValue, highestTrackableValue)));
+        totalCount.increment();
+        totalValue.add(recordedValue);
+        maxValue.accumulate(recordedValue);
+    }
+
+    public long getTotalCount() {
+        return totalCount.sum();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : (double) totalValue.sum() / count;
+    }
+
+    /**
+     * Returns the value below or equal to which are the given percentage of the recorded values,
+     * within the precision of the histogram, and never greater than the maximum recorded value
+     *
+     * @param percentile The percentage, from 0 to 100
+     *
+     * @return The value at the percentile, or 0 if no value was recorded
+     *
+     * @throws IllegalArgumentException Thrown if {@code percentile} is less than zero or greater than 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("percentile argument less than zero or greater than 100");
+        long count = totalCount.sum();
+        if (count == 0)
+            return 0;
+        long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long accumulatedCount = 0;
+        for (int index = 0; index < counts.length(); index++) {
+            accumulatedCount += counts.get(index);
+            if (accumulatedCount >= countAtPercentile)
+                return index == counts.length() - 1 ? getMax() : Math.min(highestValueInBucket(index), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Index of the sub-bucket of a value: the value itself below {@link #SUB_BUCKET_COUNT}, and
+     * above it the half of the sub-buckets of its power of two range in which it is
+     */
+    private static int countsIndex(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_HALF_COUNT;
+        return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT + subBucket;
+    }
+
+    private static long highestValueInBucket(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+        int exponent = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + SUB_BUCKET_BITS;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        int shift = exponent - (SUB_BUCKET_BITS - 1);
+        return ((long) (subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,269 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * In-memory index of the files in a directory and its subdirectories, kept up to date
+ * with a {@link WatchService} registered on every directory of the tree.
+ *
+ * <p>The whole tree is scanned once by {@link #start()}. After that, a daemon thread applies the
+ * creation, modification and deletion events to the index. When the events of a directory overflow,
+ * only that directory is listed again. Symbolic links to directories are not followed.</p>
+ *
+ * <p>The scan runs without holding the monitor of the index, so {@link #close()} returns right away
+ * even while another thread is scanning; the scan stops at the next directory.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class LiveDirectoryIndex implements Closeable {
+
+    private final Path rootDirectory;
+    private final Map<Path, Map<Path, BasicFileAttributes>> directories = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private Thread watcherThread;
+    private volatile boolean ready;
+    private volatile boolean closed;
+
+    /**
+     * Default constructor
+     *
+     * @param rootDirectory The directory to index
+     */
+    public LiveDirectoryIndex(Path rootDirectory) {
+        this.rootDirectory = rootDirectory;
+    }
+
+    /**
+     * Scans the whole directory tree and starts watching it for changes. If the index is closed
+     * before or during the scan, the scan stops and the index is not started.
+     *
+     * @throws IOException Thrown if the watch service could not be created
+     */
+    public void start() throws IOException {
+        if (! Files.isDirectory(rootDirectory))
+            throw new IllegalArgumentException("Provided root directory is a file or does not exist");
+
+        WatchService newWatchService = rootDirectory.getFileSystem().newWatchService();
+        synchronized (this) {
+            if (watchService != null || closed) {
+                newWatchService.close();
+                if (closed)
+                    return;
+                throw new IllegalStateException("Index already started");
+            }
+            watchService = newWatchService;
+        }
+        indexTree(rootDirectory);
+        synchronized (this) {
+            if (closed) {
+                directories.clear();                                    // Indexed after close() cleared it
+                watchedDirectories.clear();
+                return;
+            }
+            watcherThread = new Thread(this::processEvents, "LiveDirectoryIndex-" + rootDirectory.getFileName());
+            watcherThread.setDaemon(true);
+            watcherThread.start();
+            ready = true;
+        }
+    }
+
+    public Path getRootDirectory() {
+        return rootDirectory;
+    }
+
+    /**
+     * Returns if the initial scan has finished and the index is being kept up to date
+     *
+     * @return {@code true} if the index can be queried
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Retrieves a {@link List} of the {@link FileEntry} in the index satisfying a condition specified
+     * by a {@link FileAttributesFilter}, without accessing the file system.
+     *
+     * @param filter The {@code FileAttributesFilter} condition
+     *
+     * @return The list containing the entries
+     */
+    public List<FileEntry> filtered(FileAttributesFilter filter) {
+        List<FileEntry> entries = new ArrayList<>();
+        for (Map<Path, BasicFileAttributes> directoryFiles : directories.values())
+            for (Map.Entry<Path, BasicFileAttributes> file : directoryFiles.entrySet())
+                if (filter.accept(file.getKey(), file.getValue()))
+                    entries.add(FileEntry.of(file.getKey(), file.getValue()));
+        return entries;
+    }
+
+    /**
+     * Registers and lists a directory and all its subdirectories. The directories are
+     * registered before being listed so that no change is lost in between.
+     */
+    private void indexTree(Path directory) {
+        Deque<Path> pendingDirectories = new ArrayDeque<>();
+        pendingDirectories.push(directory);
+        while (! pendingDirectories.isEmpty() && ! closed) {
+            Path nextDirectory = pendingDirectories.pop();
+            try {
+                WatchKey key = nextDirectory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                watchedDirectories.put(key, nextDirectory);
+            }
+            catch (IOException | ClosedWatchServiceException exception) {
+                continue;
+            }
+            pendingDirectories.addAll(listDirectory(nextDirectory));
+        }
+    }
+
+    /**
+     * Replaces the files of a directory in the index with the ones currently in it
+     *
+     * @return The subdirectories of the directory that are not in the index yet
+     */
+    private List<Path> listDirectory(Path directory) {
+        Map<Path, BasicFileAttributes> files = new ConcurrentHashMap<>();
+        List<Path> newSubdirectories = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+            for (Path path : directoryStream) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (! attributes.isDirectory())
+                        files.put(path, attributes);
+                    else if (! Files.isSymbolicLink(path) && ! directories.containsKey(path))
+                        newSubdirectories.add(path);
+                }
+                catch (IOException exception) {
+                    // Deleted or unreadable entry, skipped
+                }
+            }
+        }
+        catch (IOException | DirectoryIteratorException exception) {
+            return newSubdirectories;
+        }
+        directories.put(directory, files);
+        return newSubdirectories;
+    }
+
+    private void processEvents() {
+        while (! Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            }
+            catch (InterruptedException | ClosedWatchServiceException exception) {
+                break;
+            }
+            Path directory = watchedDirectories.get(key);
+            if (directory != null)
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW)
+                        rescanDirectory(directory);
+                    else
+                        applyEvent(event.kind(), directory.resolve((Path) event.context()));
+                }
+            if (! key.reset()) {
+                watchedDirectories.remove(key);
+                if (directory != null)
+                    removeTree(directory);
+            }
+        }
+    }
+
+    private void applyEvent(WatchEvent.Kind<?> kind, Path path) {
+        if (kind == ENTRY_DELETE) {
+            removePath(path);
+            return;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (! attributes.isDirectory())
+                directories.computeIfAbsent(path.getParent(), key -> new ConcurrentHashMap<>()).put(path, attributes);
+            else if (! Files.isSymbolicLink(path) && ! directories.containsKey(path))
+                indexTree(path);
+        }
+        catch (IOException exception) {
+            removePath(path);                                       // Already deleted again
+        }
+    }
+
+    /**
+     * Lists again a directory whose events were lost, indexing its new subdirectories
+     * and removing the ones that no longer exist
+     */
+    private void rescanDirectory(Path directory) {
+        for (Path newSubdirectory : listDirectory(directory))
+            indexTree(newSubdirectory);
+        for (Path indexedDirectory : new ArrayList<>(directories.keySet()))
+            if (directory.equals(indexedDirectory.getParent()) && ! Files.isDirectory(indexedDirectory))
+                removeTree(indexedDirectory);
+    }
+
+    private void removePath(Path path) {
+        Map<Path, BasicFileAttributes> parentFiles = directories.get(path.getParent());
+        if (parentFiles != null)
+            parentFiles.remove(path);
+        if (directories.containsKey(path))
+            removeTree(path);
+    }
+
+    private void removeTree(Path directory) {
+        directories.keySet().removeIf(indexedDirectory -> indexedDirectory.startsWith(directory));
+        Iterator<Map.Entry<WatchKey, Path>> watched = watchedDirectories.entrySet().iterator();
+        while (watched.hasNext()) {
+            Map.Entry<WatchKey, Path> watchedDirectory = watched.next();
+            if (watchedDirectory.getValue().startsWith(directory)) {
+                watchedDirectory.getKey().cancel();
+                watched.remove();
+            }
+        }
+    }
+
+    /**
+     * Stops watching the directory tree, or stops the scan if it is running, and empties the index
+     *
+     * @throws IOException Thrown if the watch service could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        WatchService closedWatchService;
+        Thread closedWatcherThread;
+        synchronized (this) {
+            closed = true;
+            ready = false;
+            closedWatchService = watchService;
+            closedWatcherThread = watcherThread;
+        }
+        if (closedWatcherThread != null)
+            closedWatcherThread.interrupt();
+        if (closedWatchService != null)
+            closedWatchService.close();
+        directories.clear();
+        watchedDirectories.clear();
+    }
+}
@@ -0,0 +1,332 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Retrieves a {@link List} of files that are in a directory and any of the subdirectories
+ * in that directory satisfying a condition specified by a {@link FileFilter}, scanning the
+ * subdirectories concurrently in a {@link ForkJoinPool}.
+ * If {@code maxFilesRequired} is 0 all the files will be retrieved.
+ *
+ * <p>Each subdirectory is scanned by its own {@link RecursiveTask}, so idle workers steal
+ * pending subdirectories from busy ones. Every task returns its own list, and the lists are
+ * concatenated when the tasks are joined, so no lock is shared among the workers. When
+ * {@code maxFilesRequired} is greater than 0, the tasks reserve their share of files from
+ * a shared atomic counter, hence the result never exceeds the maximum, although which files
+ * are retrieved depends on the scheduling of the tasks.</p>
+ *
+ * <p>{@link #filteredEntries(FileAttributesFilter)} retrieves {@link FileEntry}s instead, reading the
+ * {@link BasicFileAttributes} of each entry only once, as {@link FileEntriesInDirectory} does. Entries that
+ * can't be read, such as files deleted during the scan, are skipped, and symbolic link cycles are not followed.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ * @see FilesInDirectory
+ * @see FileEntriesInDirectory
+ */
+public class ParallelFilesInDirectory {
+
+    private File rootDirectory;
+    private int parallelism;
+    private final LongAdder directoriesScanned = new LongAdder();
+
+    /**
+     * Constructor that uses as many workers as available processors
+     *
+     * @param rootDirectory The directory from within to find the files
+     */
+    public ParallelFilesInDirectory(File rootDirectory) {
+        this(rootDirectory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor with a given parallelism level
+     *
+     * @param rootDirectory The directory from within to find the files
+     * @param parallelism   The number of workers that scan the directories
+     *
+     * @throws IllegalArgumentException Thrown if {@code parallelism} is less than 1
+     */
+    public ParallelFilesInDirectory(File rootDirectory, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism argument less than one");
+        this.rootDirectory = rootDirectory;
+        this.parallelism = parallelism;
+    }
+
+    public List<File> filtered(FileFilter filter) {
+        return filteredAndBounded(filter, 0);
+    }
+
+    /**
+     * Retrieves a {@link List} with at most {@code maxFilesRequired} files that are in a directory or
+     * any of the subdirectories in that directory satisfying a condition specified by a {@link FileFilter}.
+     * If {@code maxFilesRequired} is 0 all the files will be retrieved.
+     * If the calling thread is interrupted the scan is cancelled and the files found so far are discarded.
+     *
+     * @param filter           The {@code FileFilter} condition
+     * @param maxFilesRequired Maximum number of files required. 0 means no maximum
+     *
+     * @return The list containing all the files
+     *
+     * @throws IllegalArgumentException Thrown if {@code maxFilesRequired} argument is less than zero
+     */
+    public List<File> filteredAndBounded(FileFilter filter, int maxFilesRequired) {
+        checkArguments(filter, maxFilesRequired);
+        ScanState state = new ScanState(maxFilesRequired, directoriesScanned);
+        return scan(new DirectoryScanTask(rootDirectory, filter, state), state);
+    }
+
+    public List<FileEntry> filteredEntries(FileAttributesFilter filter) {
+        return filteredAndBoundedEntries(filter, 0);
+    }
+
+    /**
+     * Retrieves a {@link List} with at most {@code maxFilesRequired} entries that are in a directory or any of the
+     * subdirectories in that directory satisfying a condition specified by a {@link FileAttributesFilter}.
+     * If {@code maxFilesRequired} is 0 all the files will be retrieved.
+     * If the calling thread is interrupted the scan is cancelled and the entries found so far are discarded.
+     *
+     * @param filter           The {@code FileAttributesFilter} condition
+     * @param maxFilesRequired Maximum number of files required. 0 means no maximum
+     *
+     * @return The list containing all the entries
+     *
+     * @throws IllegalArgumentException Thrown if {@code maxFilesRequired} argument is less than zero
+     */
+    public List<FileEntry> filteredAndBoundedEntries(FileAttributesFilter filter, int maxFilesRequired) {
+        checkArguments(filter, maxFilesRequired);
+        ScanState state = new ScanState(maxFilesRequired, directoriesScanned);
+        Path rootPath = rootDirectory.toPath();
+        Object rootKey;
+        try {
+            rootKey = Files.readAttributes(rootPath, BasicFileAttributes.class).fileKey();
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return scan(new EntryScanTask(rootPath, rootKey, null, filter, state), state);
+    }
+
+    private void checkArguments(Object filter, int maxFilesRequired) {
+        if (maxFilesRequired < 0)
+            throw new IllegalArgumentException("maxFilesRequired argument less than zero");
+        if (rootDirectory == null || filter == null)
+            throw new IllegalArgumentException("directory or filter null");
+        if (! rootDirectory.exists() || ! rootDirectory.isDirectory())
+            throw new IllegalArgumentException("Provided root directory is a file or does not exist");
+    }
+
+    private <T> List<T> scan(RecursiveTask<List<T>> rootTask, ScanState state) {
+        List<T> files = new ArrayList<>();
+        if (! Thread.currentThread().isInterrupted()) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                files = pool.submit(rootTask).get();
+            }
+            catch (InterruptedException exception) {
+                state.cancelled = true;
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException exception) {
+                Throwable cause = exception.getCause();
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                throw new IllegalStateException(cause);
+            }
+            finally {
+                pool.shutdownNow();
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Returns the number of directories read so far by the scans of this object.
+     * It can be called from other threads while a scan is running.
+     *
+     * @return The number of directories read
+     */
+    public long getDirectoriesScanned() {
+        return directoriesScanned.sum();
+    }
+
+    /**
+     * Holds the parameters of a scan shared by all its tasks
+     */
+    private static class ScanState {
+
+        private final boolean bounded;
+        private final AtomicInteger remainingFiles;
+        private final LongAdder directoriesScanned;
+        private volatile boolean cancelled;
+
+        ScanState(int maxFilesRequired, LongAdder directoriesScanned) {
+            this.directoriesScanned = directoriesScanned;
+            bounded = maxFilesRequired > 0;
+            remainingFiles = new AtomicInteger(maxFilesRequired);
+        }
+
+        /**
+         * Reserves up to {@code wanted} files of the remaining ones, if the scan is bounded
+         *
+         * @param wanted The number of files found in a directory
+         *
+         * @return The number of files that can be added
+         */
+        int reserve(int wanted) {
+            if (! bounded)
+                return wanted;
+            int remaining;
+            int granted;
+            do {
+                remaining = remainingFiles.get();
+                granted = Math.min(remaining, wanted);
+            } while (granted > 0 && ! remainingFiles.compareAndSet(remaining, remaining - granted));
+            return granted;
+        }
+
+        boolean isFinished() {
+            return cancelled || (bounded && remainingFiles.get() == 0);
+        }
+    }
+
+    /**
+     * Scans a directory, forking a new task for each one of its subdirectories
+     */
+    private static class DirectoryScanTask extends RecursiveTask<List<File>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient File directory;
+        private final transient FileFilter filter;
+        private final transient ScanState state;
+
+        DirectoryScanTask(File directory, FileFilter filter, ScanState state) {
+            this.directory = directory;
+            this.filter = filter;
+            this.state = state;
+        }
+
+        @Override
+        protected List<File> compute() {
+            List<File> files = new ArrayList<>();
+            if (state.isFinished())
+                return files;
+
+            File[] subFiles = directory.listFiles(filter);
+            state.directoriesScanned.increment();
+            if (subFiles != null) {
+                int granted = state.reserve(subFiles.length);
+                files.addAll(Arrays.asList(subFiles).subList(0, granted));
+            }
+
+            File[] subdirectories = directory.listFiles(File::isDirectory);
+            if (subdirectories != null && ! state.isFinished()) {
+                List<DirectoryScanTask> subtasks = new ArrayList<>(subdirectories.length);
+                for (File subdirectory : subdirectories) {
+                    DirectoryScanTask subtask = new DirectoryScanTask(subdirectory, filter, state);
+                    subtask.fork();
+                    subtasks.add(subtask);
+                }
+                for (DirectoryScanTask subtask : subtasks)
+                    files.addAll(subtask.join());
+            }
+            return files;
+        }
+    }
+
+    /**
+     * Scans a directory reading the attributes of each entry once, forking a new task for each one of
+     * its subdirectories that is not an ancestor reached through a symbolic link
+     */
+    private static class EntryScanTask extends RecursiveTask<List<FileEntry>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path directory;
+        private final transient Object fileKey;
+        private final transient EntryScanTask parent;
+        private final transient FileAttributesFilter filter;
+        private final transient ScanState state;
+
+        EntryScanTask(Path directory, Object fileKey, EntryScanTask parent, FileAttributesFilter filter, ScanState state) {
+            this.directory = directory;
+            this.fileKey = fileKey;
+            this.parent = parent;
+            this.filter = filter;
+            this.state = state;
+        }
+
+        @Override
+        protected List<FileEntry> compute() {
+            List<FileEntry> entries = new ArrayList<>();
+            if (state.isFinished())
+                return entries;
+
+            List<FileEntry> acceptedEntries = new ArrayList<>();
+            List<EntryScanTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+                state.directoriesScanned.increment();
+                for (Path path : directoryStream) {
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    }
+                    catch (IOException exception) {
+                        continue;                                       // Deleted or unreadable, skipped
+                    }
+                    if (attributes.isDirectory()) {
+                        if (! isAncestor(attributes.fileKey()))
+                            subtasks.add(new EntryScanTask(path, attributes.fileKey(), this, filter, state));
+                    }
+                    else if (filter.accept(path, attributes))
+                        acceptedEntries.add(FileEntry.of(path, attributes));
+                }
+            }
+            catch (IOException | DirectoryIteratorException exception) {
+                // Unreadable directory, the entries read so far are kept
+            }
+            int granted = state.reserve(acceptedEntries.size());
+            entries.addAll(acceptedEntries.subList(0, granted));
+
+            if (! state.isFinished()) {
+                for (EntryScanTask subtask : subtasks)
+                    subtask.fork();
+                for (EntryScanTask subtask : subtasks)
+                    entries.addAll(subtask.join());
+            }
+            return entries;
+        }
+
+        private boolean isAncestor(Object key) {
+            if (key == null)
+                return false;
+            for (EntryScanTask task = this; task != null; task = task.parent)
+                if (key.equals(task.fileKey))
+                    return true;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+
+/**
+ * Draws random files from a directory tree, without repetition, reading only a fraction of its directories.
+ *
+ * <p>Each sample descends from the root directory choosing, at every directory, either one of its files or one
+ * of its subdirectories, with a probability proportional to the number of files they contain. The number of
+ * files of a subtree that has not been fully read is estimated with Knuth's estimator: a random path is probed
+ * from the subtree root, and the files found at each level are multiplied by the number of directories at that
+ * level. Every probe refines the estimates of all the directories along its path, and a directory is probed a
+ * few times before it is chosen, so the samples are close to uniform while only the directories along the
+ * probed paths are read. Once all the files of a subtree have been read its exact count is used.</p>
+ *
+ * <p>Directories are read once and kept in memory, so drawing more samples gets cheaper. Symbolic links to
+ * directories are not followed.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class RandomizedFileSampler {
+
+    private static final int MIN_PROBES = 3;
+    private static final double UNEXPLORED_WEIGHT = 0.5;
+
+    private final FileAttributesFilter filter;
+    private final Random random;
+    private final DirectoryNode root;
+    private volatile long directoriesRead;
+
+    /**
+     * Default constructor
+     *
+     * @param rootDirectory The directory from within to draw the files
+     * @param filter        The {@link FileAttributesFilter} condition that the files must satisfy
+     * @param random        The source of randomness
+     */
+    public RandomizedFileSampler(Path rootDirectory, FileAttributesFilter filter, Random random) {
+        if (rootDirectory == null || filter == null)
+            throw new IllegalArgumentException("directory or filter null");
+        if (! Files.isDirectory(rootDirectory))
+            throw new IllegalArgumentException("Provided root directory is a file or does not exist");
+        this.filter = filter;
+        this.random = random;
+        root = new DirectoryNode(rootDirectory, null);
+    }
+
+    /**
+     * Draws up to {@code sampleSize} random files
+     *
+     * @param sampleSize The number of files to draw
+     *
+     * @return The list with the drawn files, shorter than {@code sampleSize}
+     * if the tree has less files or the thread was interrupted
+     */
+    public List<FileEntry> sample(int sampleSize) {
+        List<FileEntry> sample = new ArrayList<>(sampleSize);
+        FileEntry nextFile;
+        while (sample.size() < sampleSize && (nextFile = nextSample()) != null)
+            sample.add(nextFile);
+        return sample;
+    }
+
+    /**
+     * Draws a random file not drawn before
+     *
+     * @return The drawn file, or {@code null} if all the files were drawn or the thread was interrupted
+     */
+    public FileEntry nextSample() {
+        DirectoryNode node = root;
+        root.read();
+        if (root.isEmpty())
+            return null;
+        while (! Thread.currentThread().isInterrupted()) {
+            node.read();
+
+            double[] weights = new double[node.subdirectories.size() + 1];
+            weights[0] = node.files.size();
+            double totalWeight = weights[0];
+            for (int s = 0; s < node.subdirectories.size(); s++) {
+                weights[s + 1] = weightOf(node.subdirectories.get(s));
+                totalWeight += weights[s + 1];
+            }
+
+            if (totalWeight == 0) {                                     // Exhausted subtree, start again
+                if (root.isEmpty())
+                    return null;
+                node = root;
+                continue;
+            }
+
+            double choice = random.nextDouble() * totalWeight;
+            if (choice < weights[0] || node.subdirectories.isEmpty())
+                return node.drawFile();
+
+            choice -= weights[0];
+            int chosen = 0;
+            while (chosen < node.subdirectories.size() - 1 && choice >= weights[chosen + 1]) {
+                choice -= weights[chosen + 1];
+                chosen++;
+            }
+            node = node.subdirectories.get(chosen);
+        }
+        return null;
+    }
+
+    private double weightOf(DirectoryNode directory) {
+        if (directory.isFullyRead())
+            return directory.exactFiles();
+        while (directory.probes < MIN_PROBES)
+            probe(directory);
+        return Math.max(directory.estimatedFiles(), UNEXPLORED_WEIGHT);
+    }
+
+    /**
+     * Estimates the number of files of a subtree following a random path from its root, and
+     * records the estimate of every directory of the path
+     *
+     * @return The estimated number of files not drawn yet in the subtree
+     */
+    private double probe(DirectoryNode directory) {
+        directory.read();
+        double estimate = directory.files.size();
+        int subdirectoriesCount = directory.subdirectories.size();
+        if (subdirectoriesCount > 0 && ! Thread.currentThread().isInterrupted()) {
+            DirectoryNode probed = directory.subdirectories.get(random.nextInt(subdirectoriesCount));
+            estimate += subdirectoriesCount * probe(probed);
+        }
+        directory.probeSum += estimate + directory.drawnFiles;
+        directory.probes++;
+        return estimate;
+    }
+
+    /**
+     * Returns the number of directories read so far
+     *
+     * @return The number of directories read
+     */
+    public long getDirectoriesRead() {
+        return directoriesRead;
+    }
+
+    /**
+     * Returns the estimated number of files in the tree that satisfy the filter, including the drawn ones
+     *
+     * @return The estimated number of files
+     */
+    public long getEstimatedFiles() {
+        root.read();
+        if (root.probes == 0 && ! root.isFullyRead())
+            probe(root);
+        return Math.round((root.isFullyRead() ? root.exactFiles() : root.estimatedFiles()) + root.drawnFiles);
+    }
+
+    /**
+     * A directory of the tree, read on demand
+     */
+    private class DirectoryNode {
+
+        private final Path directory;
+        private final DirectoryNode parent;
+        private List<FileEntry> files;
+        private List<DirectoryNode> subdirectories;
+        private double probeSum;
+        private int probes;
+        private long drawnFiles;
+        private boolean fullyRead;
+        private long exactFiles;
+
+        DirectoryNode(Path directory, DirectoryNode parent) {
+            this.directory = directory;
+            this.parent = parent;
+        }
+
+        void read() {
+            if (files != null)
+                return;
+            files = new ArrayList<>();
+            subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+                for (Path path : directoryStream) {
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                        if (! attributes.isDirectory()) {
+                            if (filter.accept(path, attributes))
+                                files.add(FileEntry.of(path, attributes));
+                        }
+                        else if (! Files.isSymbolicLink(path))
+                            subdirectories.add(new DirectoryNode(path, this));
+                    }
+                    catch (IOException exception) {
+                        // Unreadable entry, skipped
+                    }
+                }
+            }
+            catch (IOException | DirectoryIteratorException exception) {
+                // Unreadable directory, considered empty
+            }
+            directoriesRead++;
+        }
+
+        FileEntry drawFile() {
+            int drawnIndex = random.nextInt(files.size());
+            FileEntry drawn = files.get(drawnIndex);
+            files.set(drawnIndex, files.get(files.size() - 1));
+            files.remove(files.size() - 1);
+            for (DirectoryNode node = this; node != null; node = node.parent) {
+                node.drawnFiles++;
+                if (node.fullyRead)
+                    node.exactFiles--;
+            }
+            return drawn;
+        }
+
+        /**
+         * Returns the mean of the probes of the subtree, discounting the files drawn from it
+         */
+        double estimatedFiles() {
+            return probes == 0 ? 0 : Math.max(0, probeSum / probes - drawnFiles);
+        }
+
+        /**
+         * Returns if this directory and all its subdirectories were read. Once they are,
+         * the exact number of files not drawn yet in the subtree is kept up to date.
+         */
+        boolean isFullyRead() {
+            if (! fullyRead && files != null) {
+                long subtreeFiles = files.size();
+                for (DirectoryNode subdirectory : subdirectories) {
+                    if (! subdirectory.isFullyRead())
+                        return false;
+                    subtreeFiles += subdirectory.exactFiles;
+                }
+                exactFiles = subtreeFiles;
+                fullyRead = true;
+            }
+            return fullyRead;
+        }
+
+        long exactFiles() {
+            return exactFiles;
+        }
+
+        boolean isEmpty() {
+            return isFullyRead() && exactFiles() == 0;
+        }
+    }
+}
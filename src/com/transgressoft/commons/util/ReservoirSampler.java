@@ -0,0 +1,121 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Selects a uniform random sample of a fixed size from a sequence of elements of unknown
+ * length in a single pass, keeping in memory only the elements of the sample.
+ *
+ * <p>It implements Vitter's skip-based reservoir sampling (Algorithm L): once the reservoir
+ * is full, the number of elements to skip until the next replacement is computed directly,
+ * so random numbers are only generated for the elements that enter the reservoir.</p>
+ *
+ * @param <T> The type of the elements
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class ReservoirSampler<T> implements Consumer<T> {
+
+    private final int sampleSize;
+    private final Random random;
+    private final List<T> reservoir;
+    private long elementsSeen;
+    private long nextReplacement;
+    private double weight;
+
+    /**
+     * Default constructor
+     *
+     * @param sampleSize The number of elements of the sample
+     * @param random     The source of randomness
+     *
+     * @throws IllegalArgumentException Thrown if {@code sampleSize} is less than 1
+     */
+    public ReservoirSampler(int sampleSize, Random random) {
+        if (sampleSize < 1)
+            throw new IllegalArgumentException("sampleSize argument less than one");
+        this.sampleSize = sampleSize;
+        this.random = random;
+        reservoir = new ArrayList<>(sampleSize);
+    }
+
+    /**
+     * Offers an element of the sequence to the sample
+     *
+     * @param element The next element of the sequence
+     */
+    @Override
+    public void accept(T element) {
+        if (elementsSeen < sampleSize) {
+            reservoir.add(element);
+            if (elementsSeen == sampleSize - 1) {
+                weight = Math.exp(Math.log(nextOpenUnit()) / sampleSize);
+                nextReplacement = elementsSeen + skip();
+            }
+        }
+        else if (elementsSeen == nextReplacement) {
+            reservoir.set(random.nextInt(sampleSize), element);
+            weight *= Math.exp(Math.log(nextOpenUnit()) / sampleSize);
+            nextReplacement = elementsSeen + skip();
+        }
+        elementsSeen++;
+    }
+
+    /**
+     * Returns the number of positions to advance until the next element that enters the reservoir
+     */
+    private long skip() {
+        double skipped = Math.floor(Math.log(nextOpenUnit()) / Math.log(1 - weight));
+        return skipped >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE / 2 : (long) skipped + 1;
+    }
+
+    /**
+     * Returns a random double in the open interval (0, 1), as required by the logarithms
+     */
+    private double nextOpenUnit() {
+        double value;
+        do {
+            value = random.nextDouble();
+        } while (value == 0.0);
+        return value;
+    }
+
+    /**
+     * Returns the sample of the elements offered so far, in random order. It contains
+     * all of them if less than the sample size were offered.
+     *
+     * @return A new {@link List} with the sampled elements
+     */
+    public List<T> getSample() {
+        List<T> sample = new ArrayList<>(reservoir);
+        Collections.shuffle(sample, random);
+        return sample;
+    }
+
+    /**
+     * Returns the number of elements offered to the sample
+     *
+     * @return The number of elements offered
+     */
+    public long getElementsSeen() {
+        return elementsSeen;
+    }
+}
@@ -0,0 +1,105 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.util.concurrent.*;
+
+/**
+ * Rate limiter that grants permits at a given rate per second, allowing bursts of up to one second of permits.
+ * It can be shared by several threads, and its rate can be changed at any time.
+ *
+ * <p>A request for more permits than available is queued behind the previous ones, and the requesting thread
+ * waits until the permits released since then cover it, so the threads are served in order and large requests,
+ * such as whole files, are rate limited without being split. The waiting threads are woken up when the rate
+ * changes, so they wait as the new rate requires rather than as the rate at the time of the request did.
+ * The permits of a request interrupted while waiting are not returned.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class TokenBucket {
+
+    private double permitsPerSecond;
+    private double requestedPermits;
+    private double releasedPermits;
+    private long lastRefillNanos;
+
+    /**
+     * Default constructor
+     *
+     * @param permitsPerSecond The rate of permits granted per second. 0 means no limit
+     */
+    public TokenBucket(double permitsPerSecond) {
+        setPermitsPerSecond(permitsPerSecond);
+    }
+
+    /**
+     * Changes the rate of the permits granted per second, also for the threads already waiting.
+     * The requests pending when the limit is removed are granted.
+     *
+     * @param permitsPerSecond The rate of permits granted per second. 0 means no limit
+     *
+     * @throws IllegalArgumentException Thrown if {@code permitsPerSecond} is less than zero
+     */
+    public synchronized void setPermitsPerSecond(double permitsPerSecond) {
+        if (permitsPerSecond < 0)
+            throw new IllegalArgumentException("permitsPerSecond argument less than zero");
+        refill();
+        if (permitsPerSecond == 0 || this.permitsPerSecond == 0)
+            releasedPermits = requestedPermits;                         // Starts without debt nor burst
+        else
+            releasedPermits = Math.min(releasedPermits, requestedPermits + permitsPerSecond);
+        this.permitsPerSecond = permitsPerSecond;
+        notifyAll();
+    }
+
+    public synchronized double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * Acquires the given number of permits, waiting until they are granted
+     *
+     * @param permits The number of permits to acquire
+     *
+     * @throws InterruptedException Thrown if the thread is interrupted while waiting
+     */
+    public synchronized void acquire(long permits) throws InterruptedException {
+        if (permitsPerSecond == 0)
+            return;
+        refill();
+        requestedPermits += permits;
+        double grantedAt = requestedPermits;
+        while (permitsPerSecond > 0 && releasedPermits < grantedAt) {
+            long waitNanos = (long) Math.ceil((grantedAt - releasedPermits) / permitsPerSecond * 1e9);
+            TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+            refill();
+        }
+    }
+
+    /**
+     * Releases the permits of the time passed since the last refill, keeping at most one second of them unused
+     */
+    private void refill() {
+        long now = System.nanoTime();
+        if (permitsPerSecond > 0) {
+            double refilled = (now - lastRefillNanos) / 1e9 * permitsPerSecond;
+            releasedPermits = Math.min(requestedPermits + permitsPerSecond, releasedPermits + refilled);
+        }
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,120 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * <code>{@link CopyEngine}</code> that moves the bytes of the file in chunks with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which lets the kernel copy them
+ * directly between the files, without passing through the memory of the JVM, where it is supported.
+ * The times and the permissions of the source are copied to the target, as {@link FilesCopyEngine} does.
+ *
+ * <p>A {@link CopyProgressListener} is notified before and after each chunk, and the interruption of the copying
+ * thread is checked between chunks, so a copy can be aborted without waiting for the whole file.
+ * A file whose copy fails is deleted from the target, whereas the partial target of a copy aborted by an
+ * interruption is kept, so that it can be resumed.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class ChannelCopyEngine implements CopyEngine {
+
+    public static final long DEFAULT_CHUNK_SIZE = 8L * 1024 * 1024;
+
+    private final long chunkSize;
+
+    public ChannelCopyEngine() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor with a given chunk size
+     *
+     * @param chunkSize The maximum number of bytes transferred at once
+     *
+     * @throws IllegalArgumentException Thrown if {@code chunkSize} is less than 1
+     */
+    public ChannelCopyEngine(long chunkSize) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("chunkSize argument less than one");
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void copy(Path source, Path target, CopyProgressListener progressListener) throws IOException {
+        try (FileChannel sourceChannel = FileChannel.open(source, READ)) {
+            FileChannel targetChannel = FileChannel.open(target, CREATE_NEW, WRITE);
+            try {
+                transferChunks(source, sourceChannel, targetChannel, 0, progressListener);
+                targetChannel.close();
+                FileAttributesCopier.copyAttributes(source, target);
+            }
+            catch (IOException | RuntimeException exception) {
+                targetChannel.close();
+                if (! (exception instanceof InterruptedIOException || exception instanceof ClosedByInterruptException))
+                    Files.deleteIfExists(target);
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Continues a copy that was cut off, discarding the bytes of the target beyond the given offset and
+     * transferring the rest of the source. The target is not deleted if the copy fails, so it can be
+     * continued again.
+     *
+     * @param source           The file to copy
+     * @param target           The partially copied file
+     * @param offset           The number of bytes of the source known to be in the target
+     * @param progressListener The listener notified after each chunk transferred
+     *
+     * @throws IOException If the copy failed
+     */
+    public void resume(Path source, Path target, long offset, CopyProgressListener progressListener) throws IOException {
+        try (FileChannel sourceChannel = FileChannel.open(source, READ);
+             FileChannel targetChannel = FileChannel.open(target, WRITE)) {
+            targetChannel.truncate(offset);
+            targetChannel.position(offset);
+            transferChunks(source, sourceChannel, targetChannel, offset, progressListener);
+        }
+        FileAttributesCopier.copyAttributes(source, target);
+    }
+
+    private void transferChunks(Path source, FileChannel sourceChannel, FileChannel targetChannel, long offset,
+                                CopyProgressListener progressListener) throws IOException {
+        long fileSize = sourceChannel.size();
+        long position = offset;
+        while (position < fileSize) {
+            if (Thread.currentThread().isInterrupted())
+                throw new InterruptedIOException("Copy of " + source + " interrupted");
+            long chunkBytes = Math.min(chunkSize, fileSize - position);
+            progressListener.chunkStarting(source, chunkBytes);
+            long transferred = sourceChannel.transferTo(position, chunkBytes, targetChannel);
+            if (transferred <= 0)
+                break;                                          // The file was truncated while being copied
+            position += transferred;
+            progressListener.chunkCopied(source, transferred, position, fileSize);
+        }
+        if (position == 0 || offset == fileSize)
+            progressListener.chunkCopied(source, 0, position, fileSize);
+    }
+}
@@ -0,0 +1,50 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+/**
+ * The algorithms that can be used to compute the checksums of the copied files
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ * @see ChecksumCopyEngine
+ */
+public enum ChecksumAlgorithm {
+
+    /**
+     * Fast, non cryptographic 32 bit cyclic redundancy check
+     */
+    CRC32("crc32"),
+
+    /**
+     * SHA-256 message digest, with the same output of the {@code sha256sum} tool
+     */
+    SHA_256("sha256");
+
+    private final String extension;
+
+    ChecksumAlgorithm(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return The extension of a checksum manifest written with this algorithm
+     */
+    public String getExtension() {
+        return extension;
+    }
+}
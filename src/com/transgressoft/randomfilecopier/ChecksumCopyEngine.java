@@ -0,0 +1,195 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.function.*;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * <code>{@link CopyEngine}</code> that computes a checksum of each file over the same buffers that are
+ * written to the target, so the source is read only once. Optionally the target is read back after
+ * the copy and its checksum compared with the one of the source. The checksum of every copied file is
+ * passed to a consumer, along with the path of the target.
+ *
+ * <p>A file whose copy is aborted, fails, or does not match its checksum is deleted from the target.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class ChecksumCopyEngine implements CopyEngine {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private final ChecksumAlgorithm algorithm;
+    private final boolean verify;
+    private final BiConsumer<Path, String> checksumConsumer;
+    private final int bufferSize;
+
+    /**
+     * Constructor with the default buffer size
+     *
+     * @param algorithm        The algorithm of the checksums
+     * @param verify           Whether the target is read back and compared after the copy
+     * @param checksumConsumer The consumer of the target path and checksum of each copied file
+     */
+    public ChecksumCopyEngine(ChecksumAlgorithm algorithm, boolean verify, BiConsumer<Path, String> checksumConsumer) {
+        this(algorithm, verify, checksumConsumer, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor with a given buffer size
+     *
+     * @param algorithm        The algorithm of the checksums
+     * @param verify           Whether the target is read back and compared after the copy
+     * @param checksumConsumer The consumer of the target path and checksum of each copied file
+     * @param bufferSize       The maximum number of bytes read and written at once
+     *
+     * @throws IllegalArgumentException Thrown if {@code bufferSize} is less than 1
+     */
+    public ChecksumCopyEngine(ChecksumAlgorithm algorithm, boolean verify, BiConsumer<Path, String> checksumConsumer,
+                              int bufferSize) {
+        if (bufferSize < 1)
+            throw new IllegalArgumentException("bufferSize argument less than one");
+        this.algorithm = algorithm;
+        this.verify = verify;
+        this.checksumConsumer = checksumConsumer;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void copy(Path source, Path target, CopyProgressListener progressListener) throws IOException {
+        String checksum;
+        try (FileChannel sourceChannel = FileChannel.open(source, READ)) {
+            FileChannel targetChannel = FileChannel.open(target, CREATE_NEW, WRITE);
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(1, Math.min(bufferSize, sourceChannel.size())));
+                checksum = copyChecksummed(source, sourceChannel, targetChannel, buffer, progressListener);
+                targetChannel.close();
+                if (verify)
+                    verifyChecksum(target, checksum, buffer);
+                FileAttributesCopier.copyAttributes(source, target);
+            }
+            catch (IOException | RuntimeException exception) {
+                targetChannel.close();
+                Files.deleteIfExists(target);
+                throw exception;
+            }
+        }
+        checksumConsumer.accept(target, checksum);
+    }
+
+    private String copyChecksummed(Path source, FileChannel sourceChannel, FileChannel targetChannel, ByteBuffer buffer,
+                                   CopyProgressListener progressListener) throws IOException {
+        Checksum checksum = newChecksum();
+        long fileSize = sourceChannel.size();
+        long position = 0;
+        int read;
+        while ((read = sourceChannel.read(buffer)) >= 0) {
+            if (Thread.currentThread().isInterrupted())
+                throw new InterruptedIOException("Copy of " + source + " interrupted");
+            if (read > 0)
+                progressListener.chunkStarting(source, read);
+            buffer.flip();
+            checksum.update(buffer.duplicate());
+            while (buffer.hasRemaining())
+                targetChannel.write(buffer);
+            buffer.clear();
+            position += read;
+            if (read > 0)
+                progressListener.chunkCopied(source, read, position, fileSize);
+        }
+        if (position == 0)
+            progressListener.chunkCopied(source, 0, 0, 0);
+        return checksum.toHexString();
+    }
+
+    private void verifyChecksum(Path target, String expectedChecksum, ByteBuffer buffer) throws IOException {
+        Checksum checksum = newChecksum();
+        try (FileChannel targetChannel = FileChannel.open(target, READ)) {
+            buffer.clear();
+            while (targetChannel.read(buffer) >= 0) {
+                buffer.flip();
+                checksum.update(buffer);
+                buffer.clear();
+            }
+        }
+        if (! expectedChecksum.equals(checksum.toHexString()))
+            throw new IOException("Checksum of " + target + " does not match the one of the source");
+    }
+
+    private Checksum newChecksum() {
+        return algorithm == ChecksumAlgorithm.CRC32 ? new Crc32Checksum() : new MessageDigestChecksum("SHA-256");
+    }
+
+    /**
+     * A checksum that is computed incrementally over the buffers of a file
+     */
+    private interface Checksum {
+
+        void update(ByteBuffer bytes);
+
+        String toHexString();
+    }
+
+    private static class Crc32Checksum implements Checksum {
+
+        private final java.util.zip.CRC32 crc32 = new java.util.zip.CRC32();
+
+        @Override
+        public void update(ByteBuffer bytes) {
+            crc32.update(bytes);
+        }
+
+        @Override
+        public String toHexString() {
+            return String.format("%08x", crc32.getValue());
+        }
+    }
+
+    private static class MessageDigestChecksum implements Checksum {
+
+        private final MessageDigest messageDigest;
+
+        MessageDigestChecksum(String algorithm) {
+            try {
+                messageDigest = MessageDigest.getInstance(algorithm);
+            }
+            catch (NoSuchAlgorithmException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+
+        @Override
+        public void update(ByteBuffer bytes) {
+            messageDigest.update(bytes);
+        }
+
+        @Override
+        public String toHexString() {
+            StringBuilder hexString = new StringBuilder();
+            for (byte digestByte : messageDigest.digest())
+                hexString.append(String.format("%02x", digestByte));
+            return hexString.toString();
+        }
+    }
+}
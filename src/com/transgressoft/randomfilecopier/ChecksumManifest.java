@@ -0,0 +1,102 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/**
+ * Appends the checksums of the copied files to a manifest file in the destination directory, one line
+ * per file with the checksum, two spaces and the path of the file relative to the destination, as the
+ * {@code sha256sum} tool does, so it can be checked with {@code sha256sum -c}. The lines end with
+ * {@code '\n'} on every platform. Each job writes its own manifest, under a name reserved in the
+ * destination, which is created with the first checksum and never appended to an existing file.
+ * The lines are added as the copies finish.
+ * It is written through a {@link FileOutputStream}, which unlike the streams of the {@link Files} channels
+ * is not closed when the writing thread is interrupted, so the lines of an aborted job are kept.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+class ChecksumManifest implements Closeable {
+
+    private static final String MANIFEST_NAME = "CHECKSUMS.";
+
+    private final Path destinationPath;
+    private final String manifestName;
+    private Path manifestFile;
+    private BufferedWriter writer;
+    private IOException writeException;
+
+    ChecksumManifest(Path destinationPath, ChecksumAlgorithm algorithm) {
+        this.destinationPath = destinationPath;
+        manifestName = MANIFEST_NAME + algorithm.getExtension();
+    }
+
+    /**
+     * Reserves the name of the manifest among the names of the destination directory, before the files are copied
+     *
+     * @param destinationDirectories The directories of the destination of the job
+     *
+     * @throws IOException If the destination directory could not be listed
+     */
+    synchronized void reserveName(DestinationDirectories destinationDirectories) throws IOException {
+        manifestFile = destinationDirectories.reserveInDestination(manifestName);
+    }
+
+    /**
+     * @return The manifest file, or null if its name was not reserved
+     */
+    synchronized Path getManifestFile() {
+        return manifestFile;
+    }
+
+    /**
+     * Adds the checksum of a copied file. An error writing the manifest is thrown when it is closed.
+     *
+     * @param copiedFile The path of the copied file in the destination
+     * @param checksum   The checksum of the file
+     */
+    synchronized void add(Path copiedFile, String checksum) {
+        if (writeException != null)
+            return;
+        try {
+            if (writer == null) {
+                if (manifestFile == null)
+                    throw new IllegalStateException("Name of the manifest not reserved");
+                Files.createFile(manifestFile);
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(manifestFile.toFile()),
+                                                                   StandardCharsets.UTF_8));
+            }
+            writer.write(checksum + "  " + destinationPath.relativize(copiedFile).toString().replace('\\', '/') + '\n');
+        }
+        catch (IOException exception) {
+            writeException = exception;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        if (writeException != null)
+            throw writeException;
+    }
+}
@@ -0,0 +1,43 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * Strategy that copies the bytes of a file to a new file.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+@FunctionalInterface
+public interface CopyEngine {
+
+    /**
+     * Copies a file to a target that must not exist. The last modification time of the source is kept.
+     * The progress listener is notified as the bytes are copied, at least once when the copy finishes.
+     *
+     * @param source           The file to copy
+     * @param target           The path of the new file
+     * @param progressListener The listener of the progress of the copy
+     *
+     * @throws FileAlreadyExistsException Thrown if the target already exists
+     * @throws IOException                Thrown if the file could not be copied
+     */
+    void copy(Path source, Path target, CopyProgressListener progressListener) throws IOException;
+}
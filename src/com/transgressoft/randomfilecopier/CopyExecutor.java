@@ -0,0 +1,133 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+/**
+ * Copies files concurrently with a fixed number of workers. At most {@code queueCapacity} files
+ * wait for a worker, further submissions block until a worker takes one of them.
+ * A failure copying a file is given to the failure handler and does not affect the other files.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+class CopyExecutor {
+
+    private final ThreadPoolExecutor workers;
+    private final Semaphore pendingSlots;
+    private final CopyAction copyAction;
+    private final BiConsumer<FileEntry, Exception> failureHandler;
+
+    /**
+     * Default constructor
+     *
+     * @param workersCount   The number of files copied at the same time
+     * @param queueCapacity  The maximum number of files waiting for a worker
+     * @param copyAction     The action that copies a file
+     * @param failureHandler The handler of the files that failed to be copied
+     */
+    CopyExecutor(int workersCount, int queueCapacity, CopyAction copyAction,
+                 BiConsumer<FileEntry, Exception> failureHandler) {
+        this.copyAction = copyAction;
+        this.failureHandler = failureHandler;
+        pendingSlots = new Semaphore(workersCount + queueCapacity);
+        AtomicInteger workerNumber = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workersCount, workersCount, 0, TimeUnit.MILLISECONDS,
+                                         new LinkedBlockingQueue<>(), runnable -> {
+            Thread worker = new Thread(runnable, "CopyWorker-" + workerNumber.incrementAndGet());
+            worker.setDaemon(true);
+            return worker;
+        });
+    }
+
+    /**
+     * Submits a file to be copied, blocking while the queue is full
+     *
+     * @param file The file to copy
+     *
+     * @throws InterruptedException Thrown if the calling thread is interrupted while waiting
+     */
+    void submit(FileEntry file) throws InterruptedException {
+        pendingSlots.acquire();
+        try {
+            workers.execute(() -> {
+                try {
+                    if (! Thread.currentThread().isInterrupted())
+                        copyAction.copy(file);
+                }
+                catch (IOException | RuntimeException exception) {
+                    failureHandler.accept(file, exception);
+                }
+                finally {
+                    pendingSlots.release();
+                }
+            });
+        }
+        catch (RejectedExecutionException exception) {
+            pendingSlots.release();
+            throw exception;
+        }
+    }
+
+    /**
+     * Returns the number of files waiting for a worker
+     *
+     * @return The number of queued files
+     */
+    int queuedFiles() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * Waits until all the submitted files are copied. If the calling thread is interrupted
+     * the files not copied yet are discarded and the workers are interrupted.
+     *
+     * @throws InterruptedException Thrown if the calling thread is interrupted while waiting
+     */
+    void finish() throws InterruptedException {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException exception) {
+            abort();
+            throw exception;
+        }
+    }
+
+    /**
+     * Discards the files not copied yet and interrupts the workers
+     */
+    void abort() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * The action that copies a file
+     */
+    @FunctionalInterface
+    interface CopyAction {
+
+        void copy(FileEntry file) throws IOException;
+    }
+}
@@ -0,0 +1,274 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import javax.management.*;
+import java.lang.management.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+/**
+ * Metrics of a job of a {@link RandomFileCopier}, collected from its events as a {@link CopyListener}
+ * and exported as a standard MBean named {@code com.transgressoft.randomfilecopier:type=CopyJob,id=<n>}.
+ *
+ * <p>The per file events are counted in {@link LongAdder}s, so the copy workers do not contend on the counters.
+ * The directories scanned and the depth of the queue of the copy are gauges read from the copier when the
+ * attributes are requested while the job runs. The MBeans of the last {@value #RETAINED_JOBS} jobs stay registered after they
+ * finish, so that their final values can still be read. The gauges are frozen when the job finishes and their suppliers
+ * released, so a finished job does not keep its copier, and the files it scanned, reachable.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class CopyJobMetrics implements CopyListener, CopyJobMetricsMBean {
+
+    static final String DOMAIN = "com.transgressoft.randomfilecopier";
+    static final int RETAINED_JOBS = 8;
+
+    private static final AtomicLong jobIds = new AtomicLong();
+    private static final Deque<ObjectName> registeredJobs = new ArrayDeque<>();
+    private static final long STALLED_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String sourceDirectory;
+    private final String destinationDirectory;
+    private volatile LongSupplier directoriesScanned;
+    private volatile IntSupplier queueDepth;
+    private final LongAdder filesSelected = new LongAdder();
+    private final LongAdder filesCopied = new LongAdder();
+    private final LongAdder bytesCopied = new LongAdder();
+    private final LongAdder failedFiles = new LongAdder();
+    private final long jobStartNanos = System.nanoTime();
+    private volatile long finalDirectoriesScanned;
+    private volatile long filesMatched;
+    private volatile long scanStartNanos;
+    private volatile long scanEndNanos;
+    private volatile long copyStartNanos;
+    private volatile long jobEndNanos;
+    private volatile String phase = "STARTED";
+    private long lastSampleBytes;
+    private long lastSampleNanos;
+    private volatile long currentThroughput;
+
+    /**
+     * Constructor of the metrics of a job
+     *
+     * @param source             The source folder of the job
+     * @param destination        The destination folder of the job
+     * @param directoriesScanned Gauge of the directories of the source folder read so far
+     * @param queueDepth         Gauge of the selected files waiting to be copied
+     */
+    CopyJobMetrics(Path source, Path destination, LongSupplier directoriesScanned, IntSupplier queueDepth) {
+        sourceDirectory = String.valueOf(source);
+        destinationDirectory = String.valueOf(destination);
+        this.directoriesScanned = directoriesScanned;
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server with a new job id, unregistering
+     * the oldest registered job if there are more than {@value #RETAINED_JOBS}
+     *
+     * @return The name of the registered MBean
+     *
+     * @throws JMException If the MBean could not be registered
+     */
+    ObjectName register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(DOMAIN + ":type=CopyJob,id=" + jobIds.incrementAndGet());
+        synchronized (registeredJobs) {
+            server.registerMBean(this, name);
+            registeredJobs.addLast(name);
+            while (registeredJobs.size() > RETAINED_JOBS) {
+                ObjectName oldestJob = registeredJobs.removeFirst();
+                if (server.isRegistered(oldestJob))
+                    server.unregisterMBean(oldestJob);
+            }
+        }
+        return name;
+    }
+
+    @Override
+    public void scanStarted() {
+        scanStartNanos = System.nanoTime();
+        phase = "SCANNING";
+    }
+
+    @Override
+    public void scanProgressed(long filesFound) {
+        filesMatched = filesFound;
+    }
+
+    @Override
+    public void scanFinished(long filesFound) {
+        filesMatched = filesFound;
+        scanEndNanos = System.nanoTime();
+        if (copyStartNanos == 0)
+            phase = "SELECTING";
+    }
+
+    @Override
+    public void fileSelected(FileEntry file) {
+        filesSelected.increment();
+    }
+
+    @Override
+    public void copyStarted(int filesToCopy) {
+        copyStartNanos = System.nanoTime();
+        phase = "COPYING";
+    }
+
+    /**
+     * Computes the current throughput from the bytes copied since the previous sample
+     */
+    @Override
+    public synchronized void bytesCopied(long copiedBytes) {
+        long now = System.nanoTime();
+        if (lastSampleNanos != 0 && now > lastSampleNanos)
+            currentThroughput = (copiedBytes - lastSampleBytes) * TimeUnit.SECONDS.toNanos(1) / (now - lastSampleNanos);
+        lastSampleBytes = copiedBytes;
+        lastSampleNanos = now;
+    }
+
+    @Override
+    public void fileCompleted(FileEntry file, Path target) {
+        filesCopied.increment();
+        bytesCopied.add(file.getSize());
+    }
+
+    @Override
+    public void fileFailed(FileEntry file, Exception exception) {
+        failedFiles.increment();
+    }
+
+    @Override
+    public void jobFinished(int copiedFiles, long copiedBytes, int failedFiles) {
+        long now = System.nanoTime();
+        if (scanStartNanos != 0 && scanEndNanos == 0)
+            scanEndNanos = now;
+        LongSupplier directories = directoriesScanned;
+        if (directories != null)
+            finalDirectoriesScanned = directories.getAsLong();
+        jobEndNanos = now;
+        directoriesScanned = null;
+        queueDepth = null;
+        currentThroughput = 0;
+        phase = "FINISHED";
+    }
+
+    @Override
+    public String getSourceDirectory() {
+        return sourceDirectory;
+    }
+
+    @Override
+    public String getDestinationDirectory() {
+        return destinationDirectory;
+    }
+
+    @Override
+    public String getPhase() {
+        return phase;
+    }
+
+    @Override
+    public long getDirectoriesScanned() {
+        LongSupplier directories = directoriesScanned;
+        return directories == null ? finalDirectoriesScanned : directories.getAsLong();
+    }
+
+    @Override
+    public long getFilesMatched() {
+        return filesMatched;
+    }
+
+    @Override
+    public long getFilesSelected() {
+        return filesSelected.sum();
+    }
+
+    @Override
+    public long getFilesCopied() {
+        return filesCopied.sum();
+    }
+
+    @Override
+    public long getBytesCopied() {
+        return bytesCopied.sum();
+    }
+
+    @Override
+    public long getFailedFiles() {
+        return failedFiles.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        IntSupplier depth = queueDepth;
+        return depth == null ? 0 : depth.getAsInt();
+    }
+
+    @Override
+    public synchronized long getCurrentThroughput() {
+        return System.nanoTime() - lastSampleNanos > STALLED_NANOS ? 0 : currentThroughput;
+    }
+
+    @Override
+    public long getAverageThroughput() {
+        long copyMillis = getCopyMillis();
+        return copyMillis == 0 ? 0 : getBytesCopied() * 1000 / copyMillis;
+    }
+
+    @Override
+    public long getScanMillis() {
+        return millisBetween(scanStartNanos, scanEndNanos);
+    }
+
+    /**
+     * The time between the end of the scan and the start of the copy, 0 if the files are copied while selected
+     */
+    @Override
+    public long getSelectionMillis() {
+        if (scanEndNanos == 0 || (copyStartNanos != 0 && copyStartNanos < scanEndNanos))
+            return 0;
+        return millisBetween(scanEndNanos, copyStartNanos);
+    }
+
+    @Override
+    public long getCopyMillis() {
+        return millisBetween(copyStartNanos, 0);
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return millisBetween(jobStartNanos, 0);
+    }
+
+    /**
+     * Milliseconds between two instants, up to the end of the job or now if the end is not set
+     */
+    private long millisBetween(long startNanos, long endNanos) {
+        if (startNanos == 0)
+            return 0;
+        long end = endNanos != 0 ? endNanos : jobEndNanos != 0 ? jobEndNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+}
@@ -0,0 +1,72 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+/**
+ * Management interface of the metrics of a job of a {@link RandomFileCopier}, exported
+ * through JMX so that a running job can be watched with jconsole or any JMX client.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ * @see RandomFileCopier#setMetricsExported(boolean)
+ */
+public interface CopyJobMetricsMBean {
+
+    String getSourceDirectory();
+
+    String getDestinationDirectory();
+
+    /**
+     * @return STARTED, SCANNING, SELECTING, COPYING or FINISHED
+     */
+    String getPhase();
+
+    long getDirectoriesScanned();
+
+    long getFilesMatched();
+
+    long getFilesSelected();
+
+    long getFilesCopied();
+
+    long getBytesCopied();
+
+    long getFailedFiles();
+
+    /**
+     * @return The number of selected files waiting to be copied
+     */
+    int getQueueDepth();
+
+    /**
+     * @return The bytes per second copied in the last sampling interval, 0 if the copy is stalled or finished
+     */
+    long getCurrentThroughput();
+
+    /**
+     * @return The bytes per second of the copied files since the copy started
+     */
+    long getAverageThroughput();
+
+    long getScanMillis();
+
+    long getSelectionMillis();
+
+    long getCopyMillis();
+
+    long getElapsedMillis();
+}
@@ -0,0 +1,320 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Durable journal of a copy job, stored in a binary file in the destination directory, from which an
+ * interrupted job can be resumed. The journal starts with the plan of the job, the selected files in the
+ * order they are copied, and continues with a record each time the copy of a file starts, progresses
+ * or completes.
+ *
+ * <p>The plan is written to a temporary file that is moved atomically, so a journal always has a whole plan.
+ * The records are appended in batches, once enough of them are pending or some time passed since the last
+ * batch, and forced to the storage device, so the last records before a crash may be lost, and a record
+ * cut halfway is ignored when the journal is read. Hence a file can be copied without its completion in
+ * the journal, which is why a file is also taken as copied if its target has the size and the modification
+ * time of its source. The start of a copy is appended right away, without forcing it, so that the partial
+ * target of a copy cut off by the death of the application is always known.</p>
+ *
+ * <p>The records are written through a {@link RandomAccessFile}, which unlike a {@link FileChannel} is not
+ * closed when the writing thread is interrupted, so the pending records of an aborted job are still
+ * appended when the journal is closed.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+class CopyJournal implements Closeable {
+
+    static final String JOURNAL_NAME = ".randomfilecopier.journal";
+
+    private static final int MAGIC_NUMBER = 0x52464A4C;                 // "RFJL"
+    private static final int FORMAT_VERSION = 1;
+    private static final byte STARTED_RECORD = 1;
+    private static final byte PROGRESSED_RECORD = 2;
+    private static final byte COMPLETED_RECORD = 3;
+    private static final int BATCH_SIZE = 8 * 1024;
+    private static final long BATCH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final RandomAccessFile journalOutput;
+    private final Map<Path, Integer> planIndexes;
+    private final ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream(BATCH_SIZE);
+    private final DataOutputStream pendingRecords = new DataOutputStream(pendingBytes);
+    private long lastBatchNanos = System.nanoTime();
+    private IOException writeException;
+
+    private CopyJournal(RandomAccessFile journalOutput, List<FileEntry> plan) {
+        this.journalOutput = journalOutput;
+        planIndexes = new HashMap<>(plan.size() * 2);
+        for (int i = 0; i < plan.size(); i++)
+            planIndexes.put(plan.get(i).getPath(), i);
+    }
+
+    static Path journalFileIn(Path destinationPath) {
+        return destinationPath.resolve(JOURNAL_NAME);
+    }
+
+    /**
+     * Creates a new journal with the plan of a job, replacing any previous one
+     *
+     * @param journalFile The file of the journal
+     * @param plan        The files to copy, in the order they are copied
+     *
+     * @return The journal, open to append records
+     *
+     * @throws IOException If the journal could not be written
+     */
+    static CopyJournal create(Path journalFile, List<FileEntry> plan) throws IOException {
+        Path temporaryFile = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            output.writeInt(MAGIC_NUMBER);
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(plan.size());
+            for (FileEntry file : plan) {
+                output.writeUTF(file.getPath().toAbsolutePath().toString());
+                output.writeLong(file.getSize());
+                output.writeLong(file.getLastModified());
+            }
+            output.flush();
+            channel.force(true);
+        }
+        Files.move(temporaryFile, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        RandomAccessFile journalOutput = new RandomAccessFile(journalFile.toFile(), "rw");
+        journalOutput.seek(journalOutput.length());
+        return new CopyJournal(journalOutput, plan);
+    }
+
+    /**
+     * Opens an existing journal to append the records of a resumed job
+     *
+     * @param journalFile The file of the journal
+     * @param state       The state of the job read from the journal
+     *
+     * @return The journal, open to append records
+     *
+     * @throws IOException If the journal could not be opened
+     */
+    static CopyJournal reopen(Path journalFile, State state) throws IOException {
+        RandomAccessFile journalOutput = new RandomAccessFile(journalFile.toFile(), "rw");
+        journalOutput.setLength(state.validLength);                     // Drops a record cut halfway
+        journalOutput.seek(state.validLength);
+        return new CopyJournal(journalOutput, state.plan);
+    }
+
+    /**
+     * Reads the state of a job from its journal
+     *
+     * @param journalFile The file of the journal
+     *
+     * @return The {@link State} of the job
+     *
+     * @throws IOException If the journal could not be read or is not a valid journal
+     */
+    static State read(Path journalFile) throws IOException {
+        try (CountingInputStream counter = new CountingInputStream(Files.newInputStream(journalFile));
+             DataInputStream input = new DataInputStream(counter)) {
+            if (input.readInt() != MAGIC_NUMBER || input.readInt() != FORMAT_VERSION)
+                throw new IOException("Unknown format of the journal " + journalFile);
+            int planSize = input.readInt();
+            List<FileEntry> plan = new ArrayList<>(planSize);
+            for (int i = 0; i < planSize; i++)
+                plan.add(new FileEntry(Paths.get(input.readUTF()), input.readLong(), input.readLong()));
+            State state = new State(plan);
+            state.validLength = counter.count;
+            try {
+                while (true) {
+                    byte recordType = input.readByte();
+                    int index = input.readInt();
+                    if (index < 0 || index >= planSize)
+                        throw new IOException("Invalid record in the journal " + journalFile);
+                    if (recordType == STARTED_RECORD) {
+                        state.targetNames[index] = input.readUTF();
+                        state.offsets[index] = 0;
+                    }
+                    else if (recordType == PROGRESSED_RECORD)
+                        state.offsets[index] = input.readLong();
+                    else if (recordType == COMPLETED_RECORD)
+                        state.completed[index] = true;
+                    else
+                        throw new IOException("Invalid record in the journal " + journalFile);
+                    state.validLength = counter.count;
+                }
+            }
+            catch (EOFException exception) {
+                // The end of the journal, or a record cut halfway by a crash
+            }
+            return state;
+        }
+    }
+
+    synchronized void started(Path source, String targetName) {
+        Integer index = planIndexes.get(source);
+        if (index != null && writeException == null) {
+            try {
+                pendingRecords.writeByte(STARTED_RECORD);
+                pendingRecords.writeInt(index);
+                pendingRecords.writeUTF(targetName);
+                appendBatch(false);
+            }
+            catch (IOException exception) {
+                writeException = exception;
+            }
+        }
+    }
+
+    synchronized void progressed(Path source, long copiedBytes) {
+        Integer index = planIndexes.get(source);
+        if (index != null && writeException == null) {
+            try {
+                pendingRecords.writeByte(PROGRESSED_RECORD);
+                pendingRecords.writeInt(index);
+                pendingRecords.writeLong(copiedBytes);
+            }
+            catch (IOException exception) {
+                writeException = exception;
+            }
+            appendBatchIfDue();
+        }
+    }
+
+    synchronized void completed(Path source) {
+        Integer index = planIndexes.get(source);
+        if (index != null && writeException == null) {
+            try {
+                pendingRecords.writeByte(COMPLETED_RECORD);
+                pendingRecords.writeInt(index);
+            }
+            catch (IOException exception) {
+                writeException = exception;
+            }
+            appendBatchIfDue();
+        }
+    }
+
+    private void appendBatchIfDue() {
+        if (pendingBytes.size() >= BATCH_SIZE || System.nanoTime() - lastBatchNanos >= BATCH_INTERVAL_NANOS) {
+            try {
+                appendBatch(true);
+            }
+            catch (IOException exception) {
+                writeException = exception;
+            }
+        }
+    }
+
+    private void appendBatch(boolean forced) throws IOException {
+        byte[] batch = pendingBytes.toByteArray();
+        pendingBytes.reset();
+        journalOutput.write(batch);
+        if (forced) {
+            journalOutput.getFD().sync();
+            lastBatchNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Appends the pending records and closes the journal. An error writing any record is thrown here.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (writeException == null)
+                appendBatch(true);
+        }
+        finally {
+            journalOutput.close();
+        }
+        if (writeException != null)
+            throw writeException;
+    }
+
+    /**
+     * The state of a job read from its journal
+     */
+    static class State {
+
+        private final List<FileEntry> plan;
+        private final String[] targetNames;
+        private final long[] offsets;
+        private final boolean[] completed;
+        private long validLength;
+
+        State(List<FileEntry> plan) {
+            this.plan = plan;
+            targetNames = new String[plan.size()];
+            offsets = new long[plan.size()];
+            completed = new boolean[plan.size()];
+        }
+
+        List<FileEntry> getPlan() {
+            return plan;
+        }
+
+        /**
+         * @return The name of the target of the file at the given position of the plan, or null if its copy was not started
+         */
+        String getTargetName(int index) {
+            return targetNames[index];
+        }
+
+        /**
+         * @return The bytes of the file at the given position of the plan known to be copied to the target
+         */
+        long getOffset(int index) {
+            return offsets[index];
+        }
+
+        boolean isCompleted(int index) {
+            return completed[index];
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream input) {
+            super(new BufferedInputStream(input));
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0)
+                count++;
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0)
+                count += read;
+            return read;
+        }
+    }
+}
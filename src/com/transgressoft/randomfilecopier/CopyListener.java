@@ -0,0 +1,110 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import java.nio.file.*;
+
+/**
+ * Listener of the progress of the jobs of a {@link RandomFileCopier}. All the methods do nothing
+ * by default, so an implementation only overrides the events it is interested in.
+ *
+ * <p>The events about the copy of the files are notified from the threads that copy them, which
+ * may be several at once, so implementations must be thread safe. The frequent events, the progress
+ * of the scan and of the copied bytes, are sampled, so they are notified a few times per second at most.
+ * The listeners are called synchronously and should return fast, since the copy waits for them.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ * @see RandomFileCopier#addCopyListener(CopyListener)
+ * @see PrintStreamCopyListener
+ */
+public interface CopyListener {
+
+    /**
+     * The scan of the source directory started
+     */
+    default void scanStarted() {}
+
+    /**
+     * Sampled progress of the scan of the source directory
+     *
+     * @param filesFound The number of files satisfying the filter found so far
+     */
+    default void scanProgressed(long filesFound) {}
+
+    /**
+     * The scan of the source directory finished
+     *
+     * @param filesFound The number of files satisfying the filter found, or drawn if the source was traversed randomly
+     */
+    default void scanFinished(long filesFound) {}
+
+    /**
+     * A file was selected to be copied
+     *
+     * @param file The selected file
+     */
+    default void fileSelected(FileEntry file) {}
+
+    /**
+     * The copy of the selected files to the destination started
+     *
+     * @param filesToCopy The number of files to copy, or -1 if they are copied while being selected
+     */
+    default void copyStarted(int filesToCopy) {}
+
+    /**
+     * Sampled progress of the bytes copied
+     *
+     * @param copiedBytes The bytes copied since the copy started, including those of unfinished files
+     */
+    default void bytesCopied(long copiedBytes) {}
+
+    /**
+     * A file was copied to the destination
+     *
+     * @param file   The source file
+     * @param target The copied file in the destination
+     */
+    default void fileCompleted(FileEntry file, Path target) {}
+
+    /**
+     * A file could not be copied, while others are still copied
+     *
+     * @param file      The source file
+     * @param exception The cause of the failure
+     */
+    default void fileFailed(FileEntry file, Exception exception) {}
+
+    /**
+     * A job finished, was aborted, or failed
+     *
+     * @param copiedFiles The number of files copied
+     * @param copiedBytes The bytes of the files copied
+     * @param failedFiles The number of files that could not be copied
+     */
+    default void jobFinished(int copiedFiles, long copiedBytes, int failedFiles) {}
+
+    /**
+     * Any other information about a job, meant to be read by the user
+     *
+     * @param message The message
+     */
+    default void notice(String message) {}
+}
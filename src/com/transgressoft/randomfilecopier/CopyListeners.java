@@ -0,0 +1,126 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Multicasts the events of a {@link RandomFileCopier} to its registered {@link CopyListener}s, sampling
+ * the frequent ones. The listeners can be added or removed while a job is running.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+class CopyListeners implements CopyListener {
+
+    private static final long SAMPLING_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final List<CopyListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong nextScanProgressNanos = new AtomicLong(System.nanoTime());
+    private final AtomicLong nextBytesCopiedNanos = new AtomicLong(System.nanoTime());
+
+    void add(CopyListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    void remove(CopyListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void scanStarted() {
+        for (CopyListener listener : listeners)
+            listener.scanStarted();
+    }
+
+    /**
+     * Notifies the progress of the scan if the sampling interval passed since the last notification
+     */
+    @Override
+    public void scanProgressed(long filesFound) {
+        if (! listeners.isEmpty() && isSampled(nextScanProgressNanos))
+            for (CopyListener listener : listeners)
+                listener.scanProgressed(filesFound);
+    }
+
+    @Override
+    public void scanFinished(long filesFound) {
+        for (CopyListener listener : listeners)
+            listener.scanFinished(filesFound);
+    }
+
+    @Override
+    public void fileSelected(FileEntry file) {
+        for (CopyListener listener : listeners)
+            listener.fileSelected(file);
+    }
+
+    @Override
+    public void copyStarted(int filesToCopy) {
+        for (CopyListener listener : listeners)
+            listener.copyStarted(filesToCopy);
+    }
+
+    /**
+     * Notifies the copied bytes if the sampling interval passed since the last notification
+     */
+    @Override
+    public void bytesCopied(long copiedBytes) {
+        if (! listeners.isEmpty() && isSampled(nextBytesCopiedNanos))
+            for (CopyListener listener : listeners)
+                listener.bytesCopied(copiedBytes);
+    }
+
+    @Override
+    public void fileCompleted(FileEntry file, Path target) {
+        for (CopyListener listener : listeners)
+            listener.fileCompleted(file, target);
+    }
+
+    @Override
+    public void fileFailed(FileEntry file, Exception exception) {
+        for (CopyListener listener : listeners)
+            listener.fileFailed(file, exception);
+    }
+
+    @Override
+    public void jobFinished(int copiedFiles, long copiedBytes, int failedFiles) {
+        for (CopyListener listener : listeners)
+            listener.jobFinished(copiedFiles, copiedBytes, failedFiles);
+    }
+
+    @Override
+    public void notice(String message) {
+        for (CopyListener listener : listeners)
+            listener.notice(message);
+    }
+
+    /**
+     * Returns true for only one of the threads that call it once the interval passed
+     */
+    private boolean isSampled(AtomicLong nextNotificationNanos) {
+        long now = System.nanoTime();
+        long nextNotification = nextNotificationNanos.get();
+        return now - nextNotification >= 0 &&
+                nextNotificationNanos.compareAndSet(nextNotification, now + SAMPLING_INTERVAL_NANOS);
+    }
+}
@@ -0,0 +1,44 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+/**
+ * The order in which the randomly selected files are copied. Ordering the selection by
+ * the location of the files avoids seeking across the whole disk on spinning drives;
+ * which files are selected is random in any case.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ * @see RandomFileCopier#setCopyOrder(CopyOrder)
+ */
+public enum CopyOrder {
+
+    /**
+     * The files are copied in the random order they were selected
+     */
+    RANDOM,
+
+    /**
+     * The files are grouped by their directory, and ordered by inode inside each directory
+     */
+    DIRECTORY,
+
+    /**
+     * The files are ordered by device and inode, which usually follows their placement on the disk
+     */
+    INODE
+}
@@ -0,0 +1,126 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Records the time taken to copy each file of a job in {@link LatencyHistogram}s, overall and per size
+ * class, and keeps the slowest files, with a fixed memory footprint regardless of the number of files.
+ * The time spent waiting for the byte rate limit is recorded apart, and not as part of the copy time of
+ * the files, so a throttled job does not report the throttle as latency of the storage.
+ * It can be called from several copy workers at once.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ * @see CopyPerformanceReport
+ */
+class CopyPerformanceRecorder {
+
+    static final int SLOWEST_FILES = 10;
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final long[] SIZE_CLASS_LIMITS = {4L << 10, 64L << 10, 1L << 20, 16L << 20, 256L << 20};
+    private static final String[] SIZE_CLASS_NAMES = {"Up to 4 KB", "4 KB to 64 KB", "64 KB to 1 MB",
+                                                      "1 MB to 16 MB", "16 MB to 256 MB", "Over 256 MB"};
+
+    private final LatencyHistogram latencyMicros = new LatencyHistogram(HIGHEST_LATENCY_MICROS);
+    private final LatencyHistogram[] sizeClassLatencyMicros = new LatencyHistogram[SIZE_CLASS_NAMES.length];
+    private final LongAdder[] sizeClassBytes = new LongAdder[SIZE_CLASS_NAMES.length];
+    private final LongAdder[] sizeClassNanos = new LongAdder[SIZE_CLASS_NAMES.length];
+    private final LongAdder rateLimitWaitNanos = new LongAdder();
+    private final PriorityQueue<CopyPerformanceReport.SlowFile> slowestFiles =
+            new PriorityQueue<>(Comparator.comparingLong(CopyPerformanceReport.SlowFile::getLatencyNanos));
+    private volatile long slowestFilesThreshold = - 1;
+
+    CopyPerformanceRecorder() {
+        for (int i = 0; i < SIZE_CLASS_NAMES.length; i++) {
+            sizeClassLatencyMicros[i] = new LatencyHistogram(HIGHEST_LATENCY_MICROS);
+            sizeClassBytes[i] = new LongAdder();
+            sizeClassNanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records the copy of a file
+     *
+     * @param file          The copied file
+     * @param elapsedNanos  The time taken to copy it, including the waits for the rate limit
+     * @param rateLimitWait The part of that time spent waiting for the rate limit
+     */
+    void record(FileEntry file, long elapsedNanos, long rateLimitWait) {
+        long latencyNanos = Math.max(0, elapsedNanos - rateLimitWait);
+        rateLimitWaitNanos.add(rateLimitWait);
+        long micros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+        int sizeClass = sizeClassOf(file.getSize());
+        latencyMicros.record(micros);
+        sizeClassLatencyMicros[sizeClass].record(micros);
+        sizeClassBytes[sizeClass].add(file.getSize());
+        sizeClassNanos[sizeClass].add(latencyNanos);
+        if (latencyNanos > slowestFilesThreshold)
+            addSlowFile(file, latencyNanos);
+    }
+
+    /**
+     * Adds a file to the slowest ones, discarding the fastest of them if there are more than {@link #SLOWEST_FILES}.
+     * The threshold is only raised once there are enough slow files, so most of the files do not take the lock.
+     */
+    private synchronized void addSlowFile(FileEntry file, long latencyNanos) {
+        if (latencyNanos <= slowestFilesThreshold)
+            return;
+        slowestFiles.add(new CopyPerformanceReport.SlowFile(file, latencyNanos));
+        if (slowestFiles.size() > SLOWEST_FILES)
+            slowestFiles.poll();
+        if (slowestFiles.size() == SLOWEST_FILES)
+            slowestFilesThreshold = slowestFiles.peek().getLatencyNanos();
+    }
+
+    private static int sizeClassOf(long size) {
+        int sizeClass = 0;
+        while (sizeClass < SIZE_CLASS_LIMITS.length && size > SIZE_CLASS_LIMITS[sizeClass])
+            sizeClass++;
+        return sizeClass;
+    }
+
+    /**
+     * Returns the report of the files recorded so far
+     *
+     * @return The {@link CopyPerformanceReport}
+     */
+    CopyPerformanceReport report() {
+        List<CopyPerformanceReport.SizeClass> sizeClasses = new ArrayList<>();
+        for (int i = 0; i < SIZE_CLASS_NAMES.length; i++) {
+            LatencyHistogram histogram = sizeClassLatencyMicros[i];
+            if (histogram.getTotalCount() > 0) {
+                long p99LatencyNanos = TimeUnit.MICROSECONDS.toNanos(histogram.getValueAtPercentile(99));
+                sizeClasses.add(new CopyPerformanceReport.SizeClass(SIZE_CLASS_NAMES[i], histogram.getTotalCount(),
+                                                                    sizeClassBytes[i].sum(), sizeClassNanos[i].sum(),
+                                                                    p99LatencyNanos));
+            }
+        }
+        List<CopyPerformanceReport.SlowFile> slowest;
+        synchronized (this) {
+            slowest = new ArrayList<>(slowestFiles);
+        }
+        slowest.sort(Comparator.comparingLong(CopyPerformanceReport.SlowFile::getLatencyNanos).reversed());
+        return new CopyPerformanceReport(latencyMicros, sizeClasses, slowest, rateLimitWaitNanos.sum());
+    }
+}
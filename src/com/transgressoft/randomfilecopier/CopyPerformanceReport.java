@@ -0,0 +1,195 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import java.math.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Performance of the copy of the files of a job of a {@link RandomFileCopier}: the percentiles of the
+ * time taken to copy each file, the throughput of the files of each size class, and the slowest files.
+ * Files copied faster in one size class than in others, or slow files sharing a folder, show which
+ * storage is the bottleneck. The time of a file excludes the waits for the rate limits, which are
+ * reported apart as a total, so the times measure the storage even when the job is throttled.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ * @see RandomFileCopier#setPerformanceReported(boolean)
+ */
+public class CopyPerformanceReport {
+
+    private final long copiedFiles;
+    private final long medianLatencyNanos;
+    private final long p99LatencyNanos;
+    private final long maxLatencyNanos;
+    private final List<SizeClass> sizeClasses;
+    private final List<SlowFile> slowestFiles;
+    private final long rateLimitWaitNanos;
+
+    CopyPerformanceReport(LatencyHistogram latencyMicros, List<SizeClass> sizeClasses, List<SlowFile> slowestFiles,
+                          long rateLimitWaitNanos) {
+        copiedFiles = latencyMicros.getTotalCount();
+        medianLatencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros.getValueAtPercentile(50));
+        p99LatencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros.getValueAtPercentile(99));
+        maxLatencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros.getMax());
+        this.sizeClasses = Collections.unmodifiableList(sizeClasses);
+        this.slowestFiles = Collections.unmodifiableList(slowestFiles);
+        this.rateLimitWaitNanos = rateLimitWaitNanos;
+    }
+
+    public long getCopiedFiles() {
+        return copiedFiles;
+    }
+
+    public long getMedianLatencyNanos() {
+        return medianLatencyNanos;
+    }
+
+    public long getP99LatencyNanos() {
+        return p99LatencyNanos;
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    /**
+     * @return The total time the copies of the files waited for the rate limits, not included in their copy time
+     */
+    public long getRateLimitWaitNanos() {
+        return rateLimitWaitNanos;
+    }
+
+    /**
+     * @return The size classes in which at least one file was copied, from the smallest files to the largest
+     */
+    public List<SizeClass> getSizeClasses() {
+        return sizeClasses;
+    }
+
+    /**
+     * @return The files that took the longest to copy, from the slowest
+     */
+    public List<SlowFile> getSlowestFiles() {
+        return slowestFiles;
+    }
+
+    /**
+     * Returns the report as lines of text readable by the user
+     *
+     * @return The lines of the report
+     */
+    public List<String> toLines() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Copy time of " + copiedFiles + " files: p50 " + millis(medianLatencyNanos) +
+                          ", p99 " + millis(p99LatencyNanos) + ", max " + millis(maxLatencyNanos));
+        if (rateLimitWaitNanos > 0)
+            lines.add("Waits for the rate limit, excluded from the copy time: " + millis(rateLimitWaitNanos));
+        for (SizeClass sizeClass : sizeClasses)
+            lines.add("  " + sizeClass.getName() + ": " + sizeClass.getFiles() + " files, " +
+                              byteSize(sizeClass.getBytes()) + ", " + byteSize(sizeClass.getBytesPerSecond()) +
+                              "/s, p99 " + millis(sizeClass.getP99LatencyNanos()));
+        if (! slowestFiles.isEmpty()) {
+            lines.add("Slowest files:");
+            for (SlowFile slowFile : slowestFiles) {
+                Path filePath = slowFile.getFile().getPath();
+                int nameCount = filePath.getNameCount();
+                String path = filePath.subpath(Math.max(0, nameCount - 3), nameCount).toString();
+                lines.add("  " + millis(slowFile.getLatencyNanos()) + " .../" + path +
+                                  " [" + byteSize(slowFile.getFile().getSize()) + "]");
+            }
+        }
+        return lines;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+    }
+
+    private static String byteSize(long bytes) {
+        return new ByteSizeRepresentation(bytes).withMaximumDecimals(2, RoundingMode.CEILING);
+    }
+
+    /**
+     * The copy performance of the files within a range of sizes
+     */
+    public static class SizeClass {
+
+        private final String name;
+        private final long files;
+        private final long bytes;
+        private final long copyNanos;
+        private final long p99LatencyNanos;
+
+        SizeClass(String name, long files, long bytes, long copyNanos, long p99LatencyNanos) {
+            this.name = name;
+            this.files = files;
+            this.bytes = bytes;
+            this.copyNanos = copyNanos;
+            this.p99LatencyNanos = p99LatencyNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getFiles() {
+            return files;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return The bytes of the files divided by the sum of the times taken to copy each of them
+         */
+        public long getBytesPerSecond() {
+            return copyNanos == 0 ? 0 : (long) (bytes * 1e9 / copyNanos);
+        }
+
+        public long getP99LatencyNanos() {
+            return p99LatencyNanos;
+        }
+    }
+
+    /**
+     * A file and the time taken to copy it
+     */
+    public static class SlowFile {
+
+        private final FileEntry file;
+        private final long latencyNanos;
+
+        SlowFile(FileEntry file, long latencyNanos) {
+            this.file = file;
+            this.latencyNanos = latencyNanos;
+        }
+
+        public FileEntry getFile() {
+            return file;
+        }
+
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * Listener of the progress of the copy of a file, notified after each chunk is copied, and
+ * optionally before each chunk is written, so that the copy can be throttled.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+@FunctionalInterface
+public interface CopyProgressListener {
+
+    /**
+     * Invoked after a chunk of a file is copied
+     *
+     * @param source      The file being copied
+     * @param chunkBytes  The number of bytes of the chunk
+     * @param copiedBytes The number of bytes of the file copied so far
+     * @param fileSize    The size of the file
+     *
+     * @throws IOException Thrown to abort the copy of the file
+     */
+    void chunkCopied(Path source, long chunkBytes, long copiedBytes, long fileSize) throws IOException;
+
+    /**
+     * Invoked before a chunk of a file is written. Does nothing by default.
+     *
+     * @param source     The file being copied
+     * @param chunkBytes The maximum number of bytes of the chunk
+     *
+     * @throws IOException Thrown to abort the copy of the file
+     */
+    default void chunkStarting(Path source, long chunkBytes) throws IOException {}
+}
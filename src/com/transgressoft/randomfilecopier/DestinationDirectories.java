@@ -0,0 +1,133 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Places the files of a copy job in the directories of the destination according to a {@link DestinationLayout},
+ * reserving for each one a name that is unique in its directory. Each directory is created, and its names
+ * listed, only the first time a file is placed in it.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+class DestinationDirectories {
+
+    private static final int UNKNOWN_FILES_HASHED_DIRECTORIES = 256;
+
+    private final Path destinationPath;
+    private final DestinationLayout layout;
+    private final int filesPerDirectory;
+    private final int hashedDirectories;
+    private final long firstCountedDirectory;
+    private final AtomicLong placedFiles = new AtomicLong();
+    private final ConcurrentMap<Path, FileNameRegistry> directoryNames = new ConcurrentHashMap<>();
+
+    /**
+     * Default constructor
+     *
+     * @param destinationPath   The destination directory
+     * @param layout            The layout of the files in the destination
+     * @param filesPerDirectory The maximum number of files in each subdirectory
+     * @param expectedFiles     The number of files expected to be placed, or 0 if it is unknown
+     *
+     * @throws IOException If the destination directory could not be listed
+     */
+    DestinationDirectories(Path destinationPath, DestinationLayout layout, int filesPerDirectory, int expectedFiles)
+            throws IOException {
+        this.destinationPath = destinationPath;
+        this.layout = layout;
+        this.filesPerDirectory = filesPerDirectory;
+        if (expectedFiles > 0)
+            hashedDirectories = (int) Math.max(1, ((long) expectedFiles + filesPerDirectory - 1) / filesPerDirectory);
+        else
+            hashedDirectories = UNKNOWN_FILES_HASHED_DIRECTORIES;
+        firstCountedDirectory = layout == DestinationLayout.COUNTED ? nextCountedDirectory() : 0;
+    }
+
+    /**
+     * Reserves a unique target path for a file, creating its directory if needed
+     *
+     * @param sourceFile The file to place in the destination
+     *
+     * @return The path of the target, that is not taken by any other file of the job
+     *
+     * @throws IOException If the directory could not be created or listed
+     */
+    Path reserveTarget(Path sourceFile) throws IOException {
+        return reserve(directoryFor(sourceFile), sourceFile.getFileName().toString());
+    }
+
+    /**
+     * Reserves a unique path in the destination directory itself for a file of the job other than the
+     * copied ones, such as a manifest, so that no copied file takes its name
+     *
+     * @param fileName The desired name of the file
+     *
+     * @return The path of the file, numbered if the name is taken
+     *
+     * @throws IOException If the destination directory could not be listed
+     */
+    Path reserveInDestination(String fileName) throws IOException {
+        return reserve(destinationPath, fileName);
+    }
+
+    private Path reserve(Path directory, String fileName) throws IOException {
+        FileNameRegistry names = directoryNames.get(directory);
+        if (names == null) {
+            Files.createDirectories(directory);
+            names = directoryNames.computeIfAbsent(directory, FileNameRegistry::new);
+        }
+        return directory.resolve(names.reserve(fileName));
+    }
+
+    private Path directoryFor(Path sourceFile) {
+        switch (layout) {
+            case HASHED:
+                int hash = sourceFile.toAbsolutePath().toString().hashCode() * 0x9E3779B9;
+                hash ^= hash >>> 16;                                    // Similar paths differ in the high bits
+                return destinationPath.resolve(String.format("%04x", Math.floorMod(hash, hashedDirectories)));
+            case COUNTED:
+                long directoryNumber = firstCountedDirectory + placedFiles.getAndIncrement() / filesPerDirectory;
+                return destinationPath.resolve(String.format("%04d", directoryNumber));
+            default:
+                return destinationPath;
+        }
+    }
+
+    /**
+     * Returns the number following the highest numbered subdirectory of the destination, so
+     * the files of a new job are not added to the directories filled by previous ones
+     */
+    private long nextCountedDirectory() throws IOException {
+        long nextDirectory = 0;
+        try (DirectoryStream<Path> subdirectories = Files.newDirectoryStream(destinationPath, Files::isDirectory)) {
+            for (Path subdirectory : subdirectories) {
+                String name = subdirectory.getFileName().toString();
+                if (name.matches("[0-9]{1,18}"))
+                    nextDirectory = Math.max(nextDirectory, Long.parseLong(name) + 1);
+            }
+        }
+        return nextDirectory;
+    }
+}
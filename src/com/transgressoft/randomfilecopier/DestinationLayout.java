@@ -0,0 +1,46 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+/**
+ * How the copied files are distributed in the destination directory. Directories with many
+ * thousands of entries are slow to list and to look up in on many file systems, so the files
+ * of large copies can be spread across subdirectories with a bounded number of entries.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ * @see RandomFileCopier#setDestinationLayout(DestinationLayout, int)
+ */
+public enum DestinationLayout {
+
+    /**
+     * All the files are copied directly into the destination directory
+     */
+    FLAT,
+
+    /**
+     * The files are spread across subdirectories named after a hash of the path of their source.
+     * The number of subdirectories is such that each one holds the maximum number of files on average.
+     */
+    HASHED,
+
+    /**
+     * The files are copied into numbered subdirectories, filling each one up to the maximum number
+     * of files before starting the next one. A new copy into the same destination starts in a new subdirectory.
+     */
+    COUNTED
+}
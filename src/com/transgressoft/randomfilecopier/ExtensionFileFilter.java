@@ -16,18 +16,24 @@
 
 package com.transgressoft.randomfilecopier;
 
+import com.transgressoft.commons.util.*;
+
 import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
 import java.util.*;
 
 /**
  * This class implements <code>{@link FileFilter}</code> to
  * accept a file with some of the given extensionsToFilter. If no extensionsToFilter are given
  * the file is accepted. The extensionsToFilter must be given without the dot.
+ * It also implements <code>{@link FileAttributesFilter}</code> to accept a file
+ * using its already read attributes, without querying the file system.
  *
  * @author Octavio Calleya
  * @version 0.2.6
  */
-public class ExtensionFileFilter implements FileFilter {
+public class ExtensionFileFilter implements FileFilter, FileAttributesFilter {
 
     private String[] extensionsToFilter;
     private int numExtensions;
@@ -86,17 +92,29 @@ public class ExtensionFileFilter implements FileFilter {
 
     @Override
     public boolean accept(File pathname) {
+        return ! pathname.isDirectory() && ! pathname.isHidden() && acceptName(pathname.getName());
+    }
+
+    @Override
+    public boolean accept(Path path, BasicFileAttributes attributes) {
+        boolean hidden;
+        if (attributes instanceof DosFileAttributes)
+            hidden = ((DosFileAttributes) attributes).isHidden();
+        else
+            hidden = path.getFileName().toString().startsWith(".");
+        return ! attributes.isDirectory() && ! hidden && acceptName(path.getFileName().toString());
+    }
+
+    private boolean acceptName(String fileName) {
         boolean res = false;
-        if (! pathname.isDirectory() && ! pathname.isHidden()) {
-            int pos = pathname.getName().lastIndexOf('.');
-            if (pos != - 1) {
-                String extension = pathname.getName().substring(pos + 1);
-                if (numExtensions == 0) {
-                    res = true;
-                }
-                else {
-                    res = hasExtension(extension);
-                }
+        int pos = fileName.lastIndexOf('.');
+        if (pos != - 1) {
+            String extension = fileName.substring(pos + 1);
+            if (numExtensions == 0) {
+                res = true;
+            }
+            else {
+                res = hasExtension(extension);
             }
         }
         return res;
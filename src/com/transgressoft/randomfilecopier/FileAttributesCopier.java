@@ -0,0 +1,52 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+
+/**
+ * Copies the attributes of a file to its copy as {@link StandardCopyOption#COPY_ATTRIBUTES} does for
+ * {@link Files#copy(Path, Path, CopyOption...)}: the modification, access and creation times, and the
+ * POSIX permissions or the DOS attributes, depending on the file systems of the files.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+class FileAttributesCopier {
+
+    private FileAttributesCopier() {}
+
+    static void copyAttributes(Path source, Path target) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        Files.getFileAttributeView(target, BasicFileAttributeView.class)
+             .setTimes(attributes.lastModifiedTime(), attributes.lastAccessTime(), attributes.creationTime());
+
+        PosixFileAttributeView posixTarget = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        DosFileAttributeView dosTarget = Files.getFileAttributeView(target, DosFileAttributeView.class);
+        if (posixTarget != null && Files.getFileAttributeView(source, PosixFileAttributeView.class) != null)
+            posixTarget.setPermissions(Files.readAttributes(source, PosixFileAttributes.class).permissions());
+        else if (dosTarget != null && Files.getFileAttributeView(source, DosFileAttributeView.class) != null) {
+            DosFileAttributes dosAttributes = Files.readAttributes(source, DosFileAttributes.class);
+            dosTarget.setArchive(dosAttributes.isArchive());
+            dosTarget.setHidden(dosAttributes.isHidden());
+            dosTarget.setSystem(dosAttributes.isSystem());
+            dosTarget.setReadOnly(dosAttributes.isReadOnly());
+        }
+    }
+}
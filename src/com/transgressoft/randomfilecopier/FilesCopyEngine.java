@@ -0,0 +1,43 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.file.*;
+
+import static java.nio.file.StandardCopyOption.*;
+
+/**
+ * <code>{@link CopyEngine}</code> that delegates on {@link Files#copy(Path, Path, CopyOption...)},
+ * copying also the attributes of the file. The progress listener is notified once, with the whole file,
+ * before and after it is copied, so a throttled copy paces whole files rather than chunks.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class FilesCopyEngine implements CopyEngine {
+
+    private CopyOption[] copyOptions = new CopyOption[]{COPY_ATTRIBUTES};
+
+    @Override
+    public void copy(Path source, Path target, CopyProgressListener progressListener) throws IOException {
+        progressListener.chunkStarting(source, Files.size(source));
+        Files.copy(source, target, copyOptions);
+        long fileSize = Files.size(target);
+        progressListener.chunkCopied(source, fileSize, fileSize, fileSize);
+    }
+}
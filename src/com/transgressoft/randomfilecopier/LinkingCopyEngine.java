@@ -0,0 +1,76 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * <code>{@link CopyEngine}</code> that places links to the source files instead of copying their bytes,
+ * so a file is placed in the same time regardless of its size. If a link can not be created the file is
+ * copied by a fallback engine, unless the target already exists.
+ * The progress listener is notified once with no bytes for every link.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+class LinkingCopyEngine implements CopyEngine {
+
+    private final CopyEngine fallbackEngine;
+    private final boolean hardLinks;
+    private final boolean symbolicLinks;
+
+    /**
+     * @param fallbackEngine The engine that copies the files that could not be linked
+     * @param hardLinks      Whether hard links are attempted first
+     * @param symbolicLinks  Whether symbolic links are attempted if there is no hard link
+     */
+    LinkingCopyEngine(CopyEngine fallbackEngine, boolean hardLinks, boolean symbolicLinks) {
+        this.fallbackEngine = fallbackEngine;
+        this.hardLinks = hardLinks;
+        this.symbolicLinks = symbolicLinks;
+    }
+
+    @Override
+    public void copy(Path source, Path target, CopyProgressListener progressListener) throws IOException {
+        if ((hardLinks && createdLink(target, source, false)) || (symbolicLinks && createdLink(target, source, true)))
+            progressListener.chunkCopied(source, 0, 0, 0);
+        else
+            fallbackEngine.copy(source, target, progressListener);
+    }
+
+    /**
+     * Creates a link, returning false if the link is not supported between the two files
+     *
+     * @throws FileAlreadyExistsException Thrown if the target file already exists
+     */
+    private boolean createdLink(Path link, Path existing, boolean symbolic) throws FileAlreadyExistsException {
+        try {
+            if (symbolic)
+                Files.createSymbolicLink(link, existing.toAbsolutePath());
+            else
+                Files.createLink(link, existing);
+            return true;
+        }
+        catch (FileAlreadyExistsException exception) {
+            throw exception;
+        }
+        catch (IOException | UnsupportedOperationException | SecurityException exception) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Reorders the selected files by their physical locality before they are copied, according to a {@link CopyOrder}.
+ * The device and inode numbers are read through the {@code unix} attribute view; in file systems that do not
+ * support it, or if they can not be read, the files are ordered by their path.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+class LocalitySorter {
+
+    private static final String UNIX_LOCATION_ATTRIBUTES = "unix:dev,ino";
+
+    private final Comparator<LocatedFile> comparator;
+
+    LocalitySorter(CopyOrder copyOrder) {
+        Comparator<LocatedFile> byPath = Comparator.comparing(located -> located.entry.getPath());
+        switch (copyOrder) {
+            case DIRECTORY:
+                comparator = Comparator.<LocatedFile, Path> comparing(located -> located.directory)
+                        .thenComparingLong(located -> located.inode)
+                        .thenComparing(byPath);
+                break;
+            case INODE:
+                comparator = Comparator.<LocatedFile> comparingLong(located -> located.device)
+                        .thenComparingLong(located -> located.inode)
+                        .thenComparing(byPath);
+                break;
+            default:
+                comparator = null;
+        }
+    }
+
+    /**
+     * Sorts the given list of files in place
+     *
+     * @param files The files to sort
+     */
+    void sort(List<FileEntry> files) {
+        if (comparator == null || files.size() < 2)
+            return;
+        List<LocatedFile> locatedFiles = new ArrayList<>(files.size());
+        for (FileEntry file : files)
+            locatedFiles.add(located(file));
+        locatedFiles.sort(comparator);
+        for (int i = 0; i < locatedFiles.size(); i++)
+            files.set(i, locatedFiles.get(i).entry);
+    }
+
+    private LocatedFile located(FileEntry file) {
+        Path path = file.getPath();
+        long device = 0;
+        long inode = 0;
+        if (path.getFileSystem().supportedFileAttributeViews().contains("unix")) {
+            try {
+                Map<String, Object> attributes = Files.readAttributes(path, UNIX_LOCATION_ATTRIBUTES);
+                device = ((Number) attributes.get("dev")).longValue();
+                inode = ((Number) attributes.get("ino")).longValue();
+            }
+            catch (IOException | UnsupportedOperationException | IllegalArgumentException exception) {
+                // The file is ordered by its path
+            }
+        }
+        Path directory = path.getParent() == null ? path : path.getParent();
+        return new LocatedFile(file, directory, device, inode);
+    }
+
+    private static class LocatedFile {
+
+        private final FileEntry entry;
+        private final Path directory;
+        private final long device;
+        private final long inode;
+
+        LocatedFile(FileEntry entry, Path directory, long device, long inode) {
+            this.entry = entry;
+            this.directory = directory;
+            this.device = device;
+            this.inode = inode;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Selects random candidates, identified by their index, limiting the number of selected
+ * candidates and the sum of their sizes.
+ *
+ * <p>It performs a partial Fisher-Yates shuffle: each step draws a random position among the
+ * candidates not drawn yet and swaps the last of them into it, so every step costs O(1) and
+ * selecting {@code k} candidates costs O(k), regardless of the number of candidates. The permutation
+ * is kept in primitive arrays that are reused by subsequent selections; the positions are stamped with
+ * the selection that wrote them, so untouched positions are read as the identity without clearing.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class PartialShuffleSelector {
+
+    private final Random random;
+    private int[] permutation = new int[0];
+    private int[] permutationStamps = new int[0];
+    private int stamp;
+
+    /**
+     * Default constructor
+     *
+     * @param random The source of randomness
+     */
+    public PartialShuffleSelector(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Selects random candidates until {@code maxSelected} are selected, the selected ones sum
+     * {@code maxBytes}, or all of them have been drawn. A drawn candidate whose size exceeds the
+     * remaining bytes is discarded, and the selection continues with the rest.
+     *
+     * @param candidates  The number of candidates, identified from 0 to {@code candidates - 1}
+     * @param sizes       The function that returns the size of a candidate given its index
+     * @param maxSelected The maximum number of candidates to select. 0 means no maximum
+     * @param maxBytes    The maximum sum of the sizes of the selected candidates
+     *
+     * @return The {@link Selection} with the indexes of the selected candidates in the order they were drawn
+     *
+     * @throws IllegalArgumentException Thrown if {@code candidates} or {@code maxSelected} are less than zero
+     */
+    public Selection select(int candidates, IntToLongFunction sizes, int maxSelected, long maxBytes) {
+        if (candidates < 0 || maxSelected < 0)
+            throw new IllegalArgumentException("candidates or maxSelected argument less than zero");
+        preparePermutation(candidates);
+
+        int[] selected = new int[maxSelected == 0 ? Math.min(candidates, 16) : Math.min(candidates, maxSelected)];
+        int selectedCount = 0;
+        long selectedBytes = 0;
+        int remaining = candidates;
+        while (remaining > 0 && (maxSelected == 0 || selectedCount < maxSelected) && selectedBytes < maxBytes) {
+            int drawnPosition = random.nextInt(remaining);
+            int lastPosition = -- remaining;
+            int candidate = candidateAt(drawnPosition);
+            setCandidateAt(drawnPosition, candidateAt(lastPosition));
+
+            long size = sizes.applyAsLong(candidate);
+            if (size <= maxBytes - selectedBytes) {
+                if (selectedCount == selected.length)
+                    selected = Arrays.copyOf(selected, selected.length * 2);
+                selected[selectedCount++] = candidate;
+                selectedBytes += size;
+            }
+        }
+        return new Selection(Arrays.copyOf(selected, selectedCount), selectedBytes);
+    }
+
+    private void preparePermutation(int candidates) {
+        if (permutation.length < candidates) {
+            permutation = new int[candidates];
+            permutationStamps = new int[candidates];
+            stamp = 0;
+        }
+        if (++ stamp == 0) {                                    // Stamps wrapped around, reset them
+            Arrays.fill(permutationStamps, 0);
+            stamp = 1;
+        }
+    }
+
+    private int candidateAt(int position) {
+        return permutationStamps[position] == stamp ? permutation[position] : position;
+    }
+
+    private void setCandidateAt(int position, int candidate) {
+        permutation[position] = candidate;
+        permutationStamps[position] = stamp;
+    }
+
+    /**
+     * The result of a selection
+     */
+    public static class Selection {
+
+        private final int[] indexes;
+        private final long bytes;
+
+        Selection(int[] indexes, long bytes) {
+            this.indexes = indexes;
+            this.bytes = bytes;
+        }
+
+        public int[] getIndexes() {
+            return indexes;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+/**
+ * How the selected files are placed in the destination directory
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ * @see RandomFileCopier#setPlacementMode(PlacementMode)
+ */
+public enum PlacementMode {
+
+    /**
+     * The bytes of every file are copied
+     */
+    COPY,
+
+    /**
+     * The files are hard linked if the source and the destination are in the same file store,
+     * otherwise they are copied
+     */
+    HARD_LINK,
+
+    /**
+     * The files are hard linked if the source and the destination are in the same file store,
+     * otherwise symbolic links to the source files are created
+     */
+    SYMBOLIC_LINK
+}
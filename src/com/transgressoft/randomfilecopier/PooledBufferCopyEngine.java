@@ -0,0 +1,120 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * <code>{@link CopyEngine}</code> for corpora of small files, where the cost of opening the files and allocating
+ * buffers dominates over the cost of moving the bytes. Every copying thread reuses its own direct
+ * {@link ByteBuffer}, allocated the first time it copies a file, so no buffer is allocated per file.
+ * A file that fits in the buffer is copied with a single read and a single write; larger files are
+ * copied in chunks of the size of the buffer.
+ *
+ * <p>The interruption of the copying thread is checked between chunks. A file whose copy fails is deleted
+ * from the target, whereas the partial target of a copy aborted by an interruption is kept.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class PooledBufferCopyEngine implements CopyEngine {
+
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    private final ThreadLocal<ByteBuffer> workerBuffers;
+
+    public PooledBufferCopyEngine() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor with a given buffer size, which is also the threshold of the files copied at once
+     *
+     * @param bufferSize The size of the direct buffer of each copying thread
+     *
+     * @throws IllegalArgumentException Thrown if {@code bufferSize} is less than 1
+     */
+    public PooledBufferCopyEngine(int bufferSize) {
+        if (bufferSize < 1)
+            throw new IllegalArgumentException("bufferSize argument less than one");
+        workerBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(bufferSize));
+    }
+
+    @Override
+    public void copy(Path source, Path target, CopyProgressListener progressListener) throws IOException {
+        try (FileChannel sourceChannel = FileChannel.open(source, READ)) {
+            FileChannel targetChannel = FileChannel.open(target, CREATE_NEW, WRITE);
+            try {
+                copyThroughBuffer(source, sourceChannel, targetChannel, progressListener);
+                targetChannel.close();
+                FileAttributesCopier.copyAttributes(source, target);
+            }
+            catch (IOException | RuntimeException exception) {
+                targetChannel.close();
+                if (! (exception instanceof InterruptedIOException || exception instanceof ClosedByInterruptException))
+                    Files.deleteIfExists(target);
+                throw exception;
+            }
+        }
+    }
+
+    private void copyThroughBuffer(Path source, FileChannel sourceChannel, FileChannel targetChannel,
+                                   CopyProgressListener progressListener) throws IOException {
+        ByteBuffer buffer = workerBuffers.get();
+        long fileSize = sourceChannel.size();
+        long position = 0;
+        while (position < fileSize) {
+            if (Thread.currentThread().isInterrupted())
+                throw new InterruptedIOException("Copy of " + source + " interrupted");
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), fileSize - position));
+            int read = fillBuffer(sourceChannel, buffer);
+            if (read == 0)
+                break;                                          // The file was truncated while being copied
+            progressListener.chunkStarting(source, read);
+            buffer.flip();
+            while (buffer.hasRemaining())
+                targetChannel.write(buffer);
+            position += read;
+            progressListener.chunkCopied(source, read, position, fileSize);
+        }
+        if (position == 0)
+            progressListener.chunkCopied(source, 0, 0, 0);
+    }
+
+    /**
+     * Reads until the buffer, limited to the bytes of the file that remain, is full or the end of the
+     * file is reached. For a regular file it is usually a single read, with no read of the end of the file.
+     *
+     * @return The number of bytes read, 0 at the end of the file
+     */
+    private int fillBuffer(FileChannel sourceChannel, ByteBuffer buffer) throws IOException {
+        int read = 0;
+        while (buffer.hasRemaining()) {
+            int bytes = sourceChannel.read(buffer);
+            if (bytes < 0)
+                break;
+            read += bytes;
+        }
+        return read;
+    }
+}
@@ -0,0 +1,103 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import java.io.*;
+import java.math.*;
+import java.nio.file.*;
+
+/**
+ * <code>{@link CopyListener}</code> that prints the progress of the jobs to a {@link PrintStream} as lines
+ * of text readable by the user. Each copied file is printed only if it is verbose.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class PrintStreamCopyListener implements CopyListener {
+
+    private final PrintStream outStream;
+    private volatile boolean verbose;
+    private volatile boolean copyStarted;
+
+    /**
+     * Default constructor
+     *
+     * @param outStream The {@link PrintStream} where the progress is printed
+     */
+    public PrintStreamCopyListener(PrintStream outStream) {
+        this.outStream = outStream;
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    @Override
+    public void scanStarted() {
+        copyStarted = false;
+        outStream.println("Scanning source directory...");
+    }
+
+    @Override
+    public void scanFinished(long filesFound) {
+        if (filesFound == 0)
+            outStream.println("No files found with the given constraints");
+        else
+            outStream.println(Long.toString(filesFound) + " files found");
+    }
+
+    @Override
+    public void copyStarted(int filesToCopy) {
+        copyStarted = true;
+        outStream.println("Copying files to the destination directory...");
+    }
+
+    @Override
+    public void fileCompleted(FileEntry file, Path target) {
+        if (verbose) {
+            Path filePath = file.getPath();
+            int nameCount = filePath.getNameCount();
+            String path = filePath.subpath(Math.max(0, nameCount - 3), nameCount).toString();
+            ByteSizeRepresentation byteSizeRepresentation = new ByteSizeRepresentation(file.getSize());
+            String sizeString = byteSizeRepresentation.withMaximumDecimals(2, RoundingMode.CEILING);
+            outStream.println("Copied " + ".../" + path + " [" + sizeString + "]");
+        }
+    }
+
+    @Override
+    public void fileFailed(FileEntry file, Exception exception) {
+        outStream.println("ERROR copying " + file.getPath() + ": " + exception.getMessage());
+    }
+
+    @Override
+    public void jobFinished(int copiedFiles, long copiedBytes, int failedFiles) {
+        if (copyStarted) {
+            ByteSizeRepresentation byteSizeRepresentation = new ByteSizeRepresentation(copiedBytes);
+            String sizeCopied = byteSizeRepresentation.withMaximumDecimals(4, RoundingMode.CEILING);
+            String failed = failedFiles > 0 ? ", " + failedFiles + " failed" : "";
+            outStream.println("Done. " + copiedFiles + " files, " + sizeCopied + " copied" + failed);
+        }
+        copyStarted = false;
+    }
+
+    @Override
+    public void notice(String message) {
+        outStream.println(message);
+    }
+}
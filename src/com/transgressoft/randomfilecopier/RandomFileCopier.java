@@ -18,12 +18,15 @@ package com.transgressoft.randomfilecopier;
 
 import com.transgressoft.commons.util.*;
 
+import javax.management.*;
 import java.io.*;
-import java.math.*;
+import java.nio.channels.*;
 import java.nio.file.*;
 import java.util.*;
-
-import static java.nio.file.StandardCopyOption.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+import java.util.stream.*;
 
 /**
  * This class copies random files that are located in a folder and it
@@ -35,18 +38,56 @@ import static java.nio.file.StandardCopyOption.*;
  */
 public class RandomFileCopier {
 
+    private static final int PIPELINE_QUEUE_CAPACITY = 64;
+    private static final FileEntry END_OF_SELECTION = new FileEntry(Paths.get(""), - 1, - 1);
+
     private Path sourcePath;
     private Path destinationPath;
     private int maxFilesToCopy;
     private long maxBytesToCopy;
-    private long copiedBytes;
-    private List<File> filesInSource;
-    private List<File> randomSelectedFiles;
+    private long selectedBytes;
+    private AtomicLong copiedBytes;
+    private AtomicInteger copiedFiles;
+    private AtomicInteger failedFiles;
+    private FileCatalog filesInSource;
+    private List<FileEntry> randomSelectedFiles;
     private ExtensionFileFilter filter;
     private boolean verbose;
+    private int scanParallelism;
+    private int copyWorkers;
+    private boolean reservoirSampling;
+    private boolean randomizedTraversal;
+    private boolean pipelined;
+    private Path indexDirectory;
+    private LiveDirectoryIndex liveIndex;
     private Random random;
-    private PrintStream outStream;
-    private CopyOption[] copyOptions = new CopyOption[]{COPY_ATTRIBUTES};
+    private PartialShuffleSelector selector;
+    private CopyListeners copyListeners;
+    private PrintStreamCopyListener printStreamListener;
+    private AtomicLong transferredBytes;
+    private CopyEngine copyEngine;
+    private CopyEngine placementEngine;
+    private PlacementMode placementMode;
+    private CopyOrder copyOrder;
+    private ChecksumAlgorithm checksumAlgorithm;
+    private boolean verifyChecksums;
+    private ChecksumManifest checksumManifest;
+    private boolean journaled;
+    private CopyJournal journal;
+    private DestinationLayout destinationLayout;
+    private int filesPerDirectory;
+    private DestinationDirectories destinationDirectories;
+    private TokenBucket bytesPerSecondLimiter;
+    private TokenBucket filesPerSecondLimiter;
+    private ChunkListener chunkListener;
+    private boolean metricsExported;
+    private CopyJobMetrics jobMetrics;
+    private volatile LongSupplier scannedDirectories;
+    private boolean performanceReported;
+    private CopyPerformanceRecorder performanceRecorder;
+    private CopyPerformanceReport performanceReport;
+    private volatile CopyExecutor activeCopyExecutor;
+    private volatile BlockingQueue<FileEntry> pipelineQueue;
 
     /**
      * Constructor for a <tt>RandomFileCopier</tt> object
@@ -54,11 +95,11 @@ public class RandomFileCopier {
      * @param sourcePath      The source folder where the desired files are
      * @param destinationPath The destination folder to copy the files
      * @param maxFilesToCopy  The maximum number of files to copy. 0 will copy all the files
-     * @param output          The OutputStream where the log messages will be printed
+     * @param output          The OutputStream where the log messages will be printed, or null to print nothing
      */
     public RandomFileCopier(Path sourcePath, Path destinationPath, int maxFilesToCopy, PrintStream output) {
         this(sourcePath, destinationPath, maxFilesToCopy);
-        outStream = output;
+        setOutputStream(output);
     }
 
     /**
@@ -69,16 +110,32 @@ public class RandomFileCopier {
      * @param maxFilesToCopy The maximum number of files to copy. 0 will copy all the files
      */
     public RandomFileCopier(Path source, Path destination, int maxFilesToCopy) {
-        outStream = System.out;
+        copyListeners = new CopyListeners();
+        setOutputStream(System.out);
         sourcePath = source;
         destinationPath = destination;
         this.maxFilesToCopy = maxFilesToCopy;
         verbose = false;
+        scanParallelism = 1;
+        copyWorkers = 1;
+        copyEngine = new FilesCopyEngine();
+        placementMode = PlacementMode.COPY;
+        copyOrder = CopyOrder.RANDOM;
+        destinationLayout = DestinationLayout.FLAT;
+        filesPerDirectory = 1000;
+        bytesPerSecondLimiter = new TokenBucket(0);
+        filesPerSecondLimiter = new TokenBucket(0);
+        chunkListener = new ChunkListener();
         random = new Random();
+        selector = new PartialShuffleSelector(random);
         randomSelectedFiles = new ArrayList<>();
-        filesInSource = new ArrayList<>();
+        filesInSource = new FileCatalog();
         filter = new ExtensionFileFilter();
-        copiedBytes = 0;
+        selectedBytes = 0;
+        copiedBytes = new AtomicLong();
+        transferredBytes = new AtomicLong();
+        copiedFiles = new AtomicInteger();
+        failedFiles = new AtomicInteger();
         maxBytesToCopy = destinationPath.toFile().getUsableSpace();
     }
 
@@ -102,6 +159,269 @@ public class RandomFileCopier {
      */
     public void setVerbose(boolean verbose) {
         this.verbose = verbose;
+        if (printStreamListener != null)
+            printStreamListener.setVerbose(verbose);
+    }
+
+    /**
+     * Replaces the {@link PrintStreamCopyListener} that prints the progress of the jobs
+     */
+    private void setOutputStream(PrintStream output) {
+        if (printStreamListener != null)
+            copyListeners.remove(printStreamListener);
+        printStreamListener = output == null ? null : new PrintStreamCopyListener(output);
+        if (printStreamListener != null) {
+            printStreamListener.setVerbose(verbose);
+            copyListeners.add(printStreamListener);
+        }
+    }
+
+    /**
+     * Adds a listener of the progress of the jobs of this copier. The progress is printed to the output
+     * given in the constructor by a {@link PrintStreamCopyListener} as well.
+     *
+     * @param copyListener The {@link CopyListener} to add
+     */
+    public void addCopyListener(CopyListener copyListener) {
+        copyListeners.add(copyListener);
+    }
+
+    public void removeCopyListener(CopyListener copyListener) {
+        copyListeners.remove(copyListener);
+    }
+
+    /**
+     * Sets if the metrics of each job are exported as an MBean of the platform MBean server, named
+     * {@code com.transgressoft.randomfilecopier:type=CopyJob,id=<n>}, so they can be read with
+     * jconsole or any JMX client while the job runs. The MBeans of the last jobs stay registered
+     * after they finish.
+     *
+     * @param metricsExported {@code true} to export the metrics of the jobs
+     *
+     * @see CopyJobMetricsMBean
+     */
+    public void setMetricsExported(boolean metricsExported) {
+        this.metricsExported = metricsExported;
+    }
+
+    /**
+     * Sets if the time taken to copy each file is recorded, in order to print a {@link CopyPerformanceReport}
+     * at the end of each job with the percentiles of the copy time, the throughput by file size class and
+     * the slowest files. The recording has a fixed memory footprint regardless of the number of files.
+     * The time waiting for the byte rate limit is reported apart, not as part of the copy time.
+     *
+     * @param performanceReported {@code true} to record and print the performance of the copies
+     */
+    public void setPerformanceReported(boolean performanceReported) {
+        this.performanceReported = performanceReported;
+    }
+
+    /**
+     * Returns the performance report of the last job, if it was recorded
+     *
+     * @return The {@link CopyPerformanceReport}, or {@code null} if the performance
+     * was not recorded or no file was copied
+     *
+     * @see #setPerformanceReported(boolean)
+     */
+    public CopyPerformanceReport getPerformanceReport() {
+        return performanceReport;
+    }
+
+    /**
+     * Sets the number of workers that scan the source folder concurrently.
+     * 1, the default, scans the source folder in the calling thread
+     *
+     * @param scanParallelism The number of scanning workers
+     *
+     * @throws IllegalArgumentException Thrown if {@code scanParallelism} is less than 1
+     */
+    public void setScanParallelism(int scanParallelism) {
+        if (scanParallelism < 1)
+            throw new IllegalArgumentException("scanParallelism argument less than one");
+        this.scanParallelism = scanParallelism;
+    }
+
+    /**
+     * Sets the number of files that are copied at the same time.
+     * 1, the default, copies the files one by one in the calling thread, stopping at the first failure.
+     * With more workers a failure copying a file is reported and the rest of files are still copied.
+     *
+     * @param copyWorkers The number of copy workers
+     *
+     * @throws IllegalArgumentException Thrown if {@code copyWorkers} is less than 1
+     */
+    public void setCopyWorkers(int copyWorkers) {
+        if (copyWorkers < 1)
+            throw new IllegalArgumentException("copyWorkers argument less than one");
+        this.copyWorkers = copyWorkers;
+    }
+
+    /**
+     * Sets the engine that copies the bytes of each file. By default the files are copied
+     * with {@link Files#copy(Path, Path, CopyOption...)}.
+     *
+     * @param copyEngine The {@link CopyEngine} to use
+     *
+     * @see ChannelCopyEngine
+     */
+    public void setCopyEngine(CopyEngine copyEngine) {
+        this.copyEngine = Objects.requireNonNull(copyEngine);
+    }
+
+    /**
+     * Sets how the selected files are placed in the destination. Whether the source and the destination
+     * are in the same file store is detected when the copy starts; files that can not be linked are
+     * copied with the {@link CopyEngine}. By default the files are copied.
+     *
+     * @param placementMode The {@link PlacementMode} to use
+     */
+    public void setPlacementMode(PlacementMode placementMode) {
+        this.placementMode = Objects.requireNonNull(placementMode);
+    }
+
+    /**
+     * Sets the order in which the selected files are copied. Copying them ordered by their
+     * location on the disk reduces the seeks on spinning drives. It has no effect in pipelined
+     * mode, where the files are copied as soon as they are drawn. By default the files are
+     * copied in the random order they were selected.
+     *
+     * @param copyOrder The {@link CopyOrder} to use
+     */
+    public void setCopyOrder(CopyOrder copyOrder) {
+        this.copyOrder = Objects.requireNonNull(copyOrder);
+    }
+
+    /**
+     * Sets the algorithm of the checksums computed while copying the files. The checksums are computed over
+     * the same buffers that are written, and written to a manifest in the destination directory named
+     * {@code CHECKSUMS.<extension>}. Files placed as links are not included in the manifest.
+     *
+     * @param checksumAlgorithm The {@link ChecksumAlgorithm} to use, or null to copy without checksums
+     * @param verifyChecksums   Whether each copied file is read back and compared with the checksum of the source
+     *
+     * @see ChecksumCopyEngine
+     */
+    public void setChecksum(ChecksumAlgorithm checksumAlgorithm, boolean verifyChecksums) {
+        this.checksumAlgorithm = checksumAlgorithm;
+        this.verifyChecksums = verifyChecksums;
+    }
+
+    /**
+     * Sets how the copied files are distributed in the destination directory. By default all
+     * the files are copied directly into the destination directory.
+     *
+     * @param destinationLayout The {@link DestinationLayout} to use
+     * @param filesPerDirectory The maximum number of files in each subdirectory, on average if they are hashed
+     *
+     * @throws IllegalArgumentException Thrown if {@code filesPerDirectory} is less than 1
+     */
+    public void setDestinationLayout(DestinationLayout destinationLayout, int filesPerDirectory) {
+        if (filesPerDirectory < 1)
+            throw new IllegalArgumentException("filesPerDirectory argument less than one");
+        this.destinationLayout = Objects.requireNonNull(destinationLayout);
+        this.filesPerDirectory = filesPerDirectory;
+    }
+
+    /**
+     * Sets if the job is recorded in a journal in the destination directory, so it can be resumed with
+     * {@link #resume()} if it is interrupted or the application dies. The journal is deleted when the job
+     * finishes without errors. Pipelined jobs are not journaled, since their selection is not known
+     * before the copy starts.
+     *
+     * @param journaled Whether the job is journaled
+     */
+    public void setJournaled(boolean journaled) {
+        this.journaled = journaled;
+    }
+
+    /**
+     * Limits the bytes copied per second, shared by all the copy workers. It can be changed while copying.
+     * Each chunk waits for its permits before it is written, so the chunked engines are limited chunk by chunk,
+     * and the {@link FilesCopyEngine}, which copies whole files, file by file.
+     *
+     * @param maxBytesPerSecond The maximum bytes copied per second. 0 means no limit
+     *
+     * @throws IllegalArgumentException Thrown if {@code maxBytesPerSecond} is less than zero
+     */
+    public void setMaxBytesPerSecond(long maxBytesPerSecond) {
+        bytesPerSecondLimiter.setPermitsPerSecond(maxBytesPerSecond);
+    }
+
+    /**
+     * Limits the files copied per second, shared by all the copy workers. It can be changed while copying.
+     *
+     * @param maxFilesPerSecond The maximum files copied per second. 0 means no limit
+     *
+     * @throws IllegalArgumentException Thrown if {@code maxFilesPerSecond} is less than zero
+     */
+    public void setMaxFilesPerSecond(double maxFilesPerSecond) {
+        filesPerSecondLimiter.setPermitsPerSecond(maxFilesPerSecond);
+    }
+
+    /**
+     * Sets if the files should be selected while the source folder is scanned, using reservoir sampling.
+     * This keeps in memory only {@code maxFilesToCopy} files instead of all the files of the source folder,
+     * and it only applies when {@code maxFilesToCopy} is greater than 0. The maximum bytes to copy are then
+     * enforced on the sampled files, so if some of them don't fit, less than {@code maxFilesToCopy} are copied.
+     * The source folder is scanned in the calling thread regardless of the scan parallelism.
+     *
+     * @param reservoirSampling {@code true} to select the files with reservoir sampling
+     */
+    public void setReservoirSampling(boolean reservoirSampling) {
+        this.reservoirSampling = reservoirSampling;
+    }
+
+    /**
+     * Sets if the files should be drawn walking the source folder in a random order, reading only the directories
+     * needed to draw them, instead of scanning the whole source folder. The files drawn are close to a uniform
+     * sample, and it only applies when {@code maxFilesToCopy} is greater than 0. It takes precedence over the
+     * reservoir sampling and the indexes.
+     *
+     * @param randomizedTraversal {@code true} to draw the files walking the source folder in a random order
+     *
+     * @see RandomizedFileSampler
+     */
+    public void setRandomizedTraversal(boolean randomizedTraversal) {
+        this.randomizedTraversal = randomizedTraversal;
+    }
+
+    /**
+     * Sets if the files should be copied while the source folder is being walked. The files are drawn walking
+     * the source folder in a random order, as with the randomized traversal, and each file is copied as soon as
+     * it is drawn. The maximum number of files and bytes are honoured; if {@code maxFilesToCopy} is 0 files are
+     * drawn until the maximum bytes are reached or the source folder is exhausted. It takes precedence over the
+     * rest of selection modes.
+     *
+     * @param pipelined {@code true} to copy the files while the source folder is walked
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Sets the directory where a persistent index of the source folder is stored. When set, subsequent copies
+     * from the same source folder list again only the directories that changed since the previous copy.
+     * The index is not used when the files are selected with reservoir sampling.
+     *
+     * @param indexDirectory The directory of the index files, or {@code null} to scan the whole source folder
+     *
+     * @see DirectoryIndex
+     */
+    public void setIndexDirectory(Path indexDirectory) {
+        this.indexDirectory = indexDirectory;
+    }
+
+    /**
+     * Sets a live index of the source folder from which the files are taken, instead of scanning it.
+     * The index is only used if it is ready and its root directory is the source folder.
+     * It takes precedence over the persistent index, and it is not used when the files are
+     * selected with reservoir sampling.
+     *
+     * @param liveIndex The {@link LiveDirectoryIndex} of the source folder, or {@code null} to scan it
+     */
+    public void setLiveIndex(LiveDirectoryIndex liveIndex) {
+        this.liveIndex = liveIndex;
     }
 
     /**
@@ -114,10 +434,300 @@ public class RandomFileCopier {
         random.setSeed(System.currentTimeMillis());
         filesInSource.clear();
         randomSelectedFiles.clear();
-        copiedBytes = 0;
-        getRandomFilesInFolderTree();
-        if (! randomSelectedFiles.isEmpty())
+        selectedBytes = 0;
+        openJob();
+        boolean finished = false;
+        try {
+            if (pipelined)
+                pipelinedRandomCopy();
+            else {
+                getRandomFilesInFolderTree();
+                if (! randomSelectedFiles.isEmpty()) {
+                    new LocalitySorter(copyOrder).sort(randomSelectedFiles);
+                    if (journaled)
+                        journal = CopyJournal.create(CopyJournal.journalFileIn(destinationPath), randomSelectedFiles);
+                    copyRandomFilesToDestination();
+                }
+            }
+            finished = true;
+        }
+        finally {
+            closeJob(finished);
+        }
+    }
+
+    /**
+     * Resumes the job journaled in the destination directory, copying the files of its selection that were not
+     * copied and continuing the partially copied ones where they were cut off, if their sources did not change
+     * and no checksums are computed. A file is taken as copied if its target has the size and modification time
+     * of its source. The source and options of this copier, other than the engines, are not used.
+     *
+     * @return {@code true} if there was a journaled job to resume, {@code false} otherwise
+     *
+     * @throws IOException If the journal could not be read, or a file could not be copied one by one
+     * @see #setJournaled(boolean)
+     */
+    public boolean resume() throws IOException {
+        Path journalFile = CopyJournal.journalFileIn(destinationPath);
+        if (! Files.exists(journalFile))
+            return false;
+
+        CopyJournal.State journalState = CopyJournal.read(journalFile);
+        List<FileEntry> plan = journalState.getPlan();
+        randomSelectedFiles.clear();
+        selectedBytes = 0;
+        openJob();
+        boolean finished = false;
+        try {
+            journal = CopyJournal.reopen(journalFile, journalState);
+            for (int i = 0; i < plan.size(); i++) {
+                FileEntry plannedFile = plan.get(i);
+                if (! journalState.isCompleted(i) &&
+                        ! resumedCopy(plannedFile, journalState.getTargetName(i), journalState.getOffset(i))) {
+                    randomSelectedFiles.add(plannedFile);
+                    selectedBytes += plannedFile.getSize();
+                }
+            }
+            copyListeners.notice("Resuming copy, " + randomSelectedFiles.size() + " of " + plan.size() + " files pending");
             copyRandomFilesToDestination();
+            finished = true;
+        }
+        finally {
+            closeJob(finished);
+        }
+        return true;
+    }
+
+    /**
+     * Finishes the copy of a file of a resumed job, if it was started
+     *
+     * @return {@code true} if the file is copied, {@code false} if it has to be copied again
+     */
+    private boolean resumedCopy(FileEntry plannedFile, String targetName, long offset) throws IOException {
+        Path sourceFile = plannedFile.getPath();
+        Path targetFile = destinationPath.resolve(targetName == null ? sourceFile.getFileName().toString() : targetName);
+        boolean copied = isUnchanged(targetFile, plannedFile);
+        if (! copied && targetName != null) {
+            if (offset > 0 && checksumAlgorithm == null && isUnchanged(sourceFile, plannedFile) &&
+                    Files.isRegularFile(targetFile, LinkOption.NOFOLLOW_LINKS) && Files.size(targetFile) >= offset) {
+                new ChannelCopyEngine().resume(sourceFile, targetFile, offset, chunkListener);
+                copiedBytes.addAndGet(plannedFile.getSize() - offset);
+                copiedFiles.incrementAndGet();
+                copied = true;
+            }
+            else
+                Files.deleteIfExists(targetFile);
+        }
+        if (copied)
+            journal.completed(sourceFile);
+        return copied;
+    }
+
+    private boolean isUnchanged(Path file, FileEntry entry) {
+        try {
+            return Files.size(file) == entry.getSize() &&
+                    Files.getLastModifiedTime(file).toMillis() == entry.getLastModified();
+        }
+        catch (IOException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Resets the counters of the copied files and prepares the engine that places the files, computing their
+     * checksums if required, and the metrics and the performance recorder of the job if they are enabled
+     */
+    private void openJob() {
+        copiedBytes.set(0);
+        transferredBytes.set(0);
+        copiedFiles.set(0);
+        failedFiles.set(0);
+        scannedDirectories = () -> 0;
+        if (jobMetrics != null)
+            copyListeners.remove(jobMetrics);
+        jobMetrics = null;
+        if (metricsExported)
+            exportJobMetrics();
+        performanceReport = null;
+        performanceRecorder = performanceReported ? new CopyPerformanceRecorder() : null;
+        CopyEngine engine = copyEngine;
+        if (checksumAlgorithm != null) {
+            checksumManifest = new ChecksumManifest(destinationPath, checksumAlgorithm);
+            engine = new ChecksumCopyEngine(checksumAlgorithm, verifyChecksums, checksumManifest::add);
+        }
+        placementEngine = placementEngine(engine);
+    }
+
+    private void exportJobMetrics() {
+        CopyJobMetrics metrics = new CopyJobMetrics(sourcePath, destinationPath,
+                                                    () -> scannedDirectories.getAsLong(), this::queuedFiles);
+        try {
+            metrics.register();
+            copyListeners.add(metrics);
+            jobMetrics = metrics;
+        }
+        catch (JMException exception) {
+            copyListeners.notice("Metrics of the job could not be exported: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Returns the number of selected files waiting to be copied
+     */
+    private int queuedFiles() {
+        CopyExecutor copyExecutor = activeCopyExecutor;
+        BlockingQueue<FileEntry> selectedFilesQueue = pipelineQueue;
+        return (copyExecutor == null ? 0 : copyExecutor.queuedFiles()) +
+                (selectedFilesQueue == null ? 0 : selectedFilesQueue.size());
+    }
+
+    /**
+     * Prints the performance report of the job, if it was recorded, and closes the checksum manifest
+     * and the journal of the job. The journal is deleted if the job finished without errors and was not interrupted.
+     * An error writing the journal is only noticed, so it does not hide the result of the job.
+     *
+     * @param finished Whether the job finished without throwing an exception
+     */
+    private void closeJob(boolean finished) throws IOException {
+        copyListeners.jobFinished(copiedFiles.get(), copiedBytes.get(), failedFiles.get());
+        activeCopyExecutor = null;
+        if (performanceRecorder != null) {
+            CopyPerformanceReport report = performanceRecorder.report();
+            performanceRecorder = null;
+            if (report.getCopiedFiles() > 0) {
+                performanceReport = report;
+                report.toLines().forEach(copyListeners::notice);
+            }
+        }
+        try {
+            if (checksumManifest != null) {
+                checksumManifest.close();
+                Path manifestFile = checksumManifest.getManifestFile();
+                if (verbose && manifestFile != null && Files.exists(manifestFile))
+                    copyListeners.notice("Checksums written to " + manifestFile);
+            }
+        }
+        finally {
+            checksumManifest = null;
+            if (journal != null) {
+                CopyJournal finishedJournal = journal;
+                journal = null;
+                try {
+                    finishedJournal.close();
+                }
+                catch (IOException exception) {
+                    copyListeners.notice("ERROR writing the journal of the job: " + exception.getMessage());
+                }
+                if (finished && failedFiles.get() == 0 && ! Thread.currentThread().isInterrupted())
+                    Files.deleteIfExists(CopyJournal.journalFileIn(destinationPath));
+            }
+        }
+    }
+
+    /**
+     * Returns the engine that places the files in the destination according to the placement mode.
+     * Files are only hard linked if the source and the destination are in the same file store.
+     *
+     * @param engine The engine that copies the files that are not linked
+     */
+    private CopyEngine placementEngine(CopyEngine engine) {
+        if (placementMode == PlacementMode.COPY)
+            return engine;
+        boolean sameFileStore;
+        try {
+            sameFileStore = Files.getFileStore(sourcePath).equals(Files.getFileStore(destinationPath));
+        }
+        catch (IOException exception) {
+            sameFileStore = false;
+        }
+        if (verbose)
+            copyListeners.notice(sameFileStore ? "Source and destination in the same file store, linking files"
+                                               : "Source and destination in different file stores");
+        return new LinkingCopyEngine(engine, sameFileStore, placementMode == PlacementMode.SYMBOLIC_LINK);
+    }
+
+    /**
+     * Draws the random files in a selection thread that passes them through a bounded queue to the
+     * copy stage, so that the files are copied while the source folder is still being walked
+     *
+     * @throws IOException Thrown if a file could not be copied, when the files are copied one by one
+     */
+    private void pipelinedRandomCopy() throws IOException {
+        copyListeners.scanStarted();
+        copyListeners.copyStarted(- 1);
+
+        openDestination(maxFilesToCopy);
+        BlockingQueue<FileEntry> selectedFilesQueue = new ArrayBlockingQueue<>(PIPELINE_QUEUE_CAPACITY);
+        pipelineQueue = selectedFilesQueue;
+        Thread selectionThread = new Thread(() -> drawFilesIntoQueue(selectedFilesQueue), "RandomFileCopier-selection");
+        selectionThread.setDaemon(true);
+        selectionThread.start();
+
+        CopyExecutor copyExecutor = copyWorkers > 1 ? newCopyExecutor() : null;
+        try {
+            FileEntry selectedFile;
+            while ((selectedFile = selectedFilesQueue.take()) != END_OF_SELECTION) {
+                if (copyExecutor != null)
+                    copyExecutor.submit(selectedFile);
+                else
+                    copyFile(selectedFile);
+            }
+            if (copyExecutor != null)
+                copyExecutor.finish();
+        }
+        catch (InterruptedException | InterruptedIOException | ClosedByInterruptException exception) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            selectionThread.interrupt();
+            if (copyExecutor != null)
+                copyExecutor.abort();
+            awaitTermination(selectionThread);
+            pipelineQueue = null;
+        }
+    }
+
+    /**
+     * Waits for the selection thread to finish, so that it does not report any event after the job is
+     * finished nor overlaps the next job. The interrupted status of the current thread is kept.
+     */
+    private void awaitTermination(Thread selectionThread) {
+        boolean interrupted = false;
+        while (selectionThread.isAlive()) {
+            try {
+                selectionThread.join();
+            }
+            catch (InterruptedException exception) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private void drawFilesIntoQueue(BlockingQueue<FileEntry> selectedFilesQueue) {
+        try {
+            drawFilesLimitingBytesAndNumber(selectedFile -> {
+                try {
+                    selectedFilesQueue.put(selectedFile);
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        catch (RuntimeException exception) {
+            copyListeners.notice("ERROR scanning source directory: " + exception.getMessage());
+        }
+        finally {
+            try {
+                if (! Thread.currentThread().isInterrupted())
+                    selectedFilesQueue.put(END_OF_SELECTION);
+            }
+            catch (InterruptedException exception) {
+                // The copy stage was stopped, nobody waits for the end of the selection
+            }
+        }
     }
 
     /**
@@ -127,21 +737,92 @@ public class RandomFileCopier {
     private void getRandomFilesInFolderTree() {
         randomSelectedFiles.clear();
 
-        if (outStream != null)
-            outStream.println("Scanning source directory...");
-        filesInSource = new FilesInDirectory(sourcePath.toFile()).filteredAndBounded(filter, 0);
+        copyListeners.scanStarted();
+        if (randomizedTraversal && maxFilesToCopy > 0)
+            drawFilesLimitingBytesAndNumber(randomSelectedFiles::add);
+        else {
+            long filesFound = collectSourceFiles();
+            copyListeners.scanFinished(filesFound);
+            if (filesFound > 0)
+                selectedFilesLimitingBytesAndNumber();
+        }
+    }
+
+    /**
+     * Collects the candidate files into the catalog of source files, either all of the files
+     * of the source folder satisfying the filter, or a reservoir sample of them
+     *
+     * @return The number of files found in the source folder satisfying the filter
+     */
+    private long collectSourceFiles() {
+        long filesFound;
+        if (reservoirSampling && maxFilesToCopy > 0) {
+            ReservoirSampler<FileEntry> sampler = new ReservoirSampler<>(maxFilesToCopy, random);
+            FileEntriesInDirectory sourceDirectory = new FileEntriesInDirectory(sourcePath);
+            scannedDirectories = sourceDirectory::getDirectoriesScanned;
+            try (Stream<FileEntry> sourceEntries = sourceDirectory.stream(filter)) {
+                sourceEntries.forEach(sourceEntry -> {
+                    sampler.accept(sourceEntry);
+                    copyListeners.scanProgressed(sampler.getElementsSeen());
+                });
+            }
+            sampler.getSample().forEach(filesInSource::add);
+            filesFound = sampler.getElementsSeen();
+        }
+        else {
+            scanSourceFiles();
+            filesFound = filesInSource.size();
+        }
+        return filesFound;
+    }
 
-        if (filesInSource.isEmpty()) {
-            if (outStream != null)
-                outStream.println("No files found with the given constraints");
+    /**
+     * Adds the files of the source folder satisfying the filter to the catalog of source files.
+     * The sequential scan is streamed into the catalog, so no intermediate objects are retained.
+     */
+    private void scanSourceFiles() {
+        if (liveIndex != null && liveIndex.isReady() && liveIndex.getRootDirectory().equals(sourcePath))
+            liveIndex.filtered(filter).forEach(this::addSourceFile);
+        else if (indexDirectory != null)
+            indexedSourceFiles().forEach(this::addSourceFile);
+        else if (scanParallelism > 1) {
+            ParallelFilesInDirectory sourceDirectory = new ParallelFilesInDirectory(sourcePath.toFile(), scanParallelism);
+            scannedDirectories = sourceDirectory::getDirectoriesScanned;
+            sourceDirectory.filteredEntries(filter).forEach(this::addSourceFile);
         }
         else {
-            if (outStream != null)
-                outStream.println(Integer.toString(filesInSource.size()) + " files found");
-            selectedFilesLimitingBytesAndNumber();
+            FileEntriesInDirectory sourceDirectory = new FileEntriesInDirectory(sourcePath);
+            scannedDirectories = sourceDirectory::getDirectoriesScanned;
+            try (Stream<FileEntry> sourceEntries = sourceDirectory.stream(filter)) {
+                sourceEntries.forEach(this::addSourceFile);
+            }
         }
     }
 
+    private void addSourceFile(FileEntry sourceFile) {
+        filesInSource.add(sourceFile);
+        copyListeners.scanProgressed(filesInSource.size());
+    }
+
+    private List<FileEntry> indexedSourceFiles() {
+        DirectoryIndex index = new DirectoryIndex(sourcePath, DirectoryIndex.indexFileIn(indexDirectory, sourcePath));
+        List<FileEntry> sourceFiles;
+        scannedDirectories = index::getRescannedDirectories;
+        try {
+            sourceFiles = index.refreshed(filter);
+        }
+        catch (IOException exception) {
+            copyListeners.notice("Index of the source directory could not be saved: " + exception.getMessage());
+            FileEntriesInDirectory sourceDirectory = new FileEntriesInDirectory(sourcePath);
+            scannedDirectories = sourceDirectory::getDirectoriesScanned;
+            return sourceDirectory.filtered(filter);
+        }
+        if (verbose)
+            copyListeners.notice(index.getRescannedDirectories() + " directories scanned, " +
+                                         index.getReusedDirectories() + " taken from the index");
+        return sourceFiles;
+    }
+
     /**
      * Copies the randomly selected files to the destination path
      * Renames duplicated files to ensure that files with the same name are not overwritten
@@ -149,49 +830,203 @@ public class RandomFileCopier {
      * @throws IOException
      */
     private void copyRandomFilesToDestination() throws IOException {
-        if (outStream != null)
-            outStream.println("Copying files to the destination directory...");
+        copyListeners.copyStarted(randomSelectedFiles.size());
+        openDestination(randomSelectedFiles.size());
+        if (copyWorkers > 1)
+            copyFilesInParallel();
+        else
+            copyFilesSequentially();
+    }
+
+    /**
+     * Prepares the directories of the destination of the job, reserving in them the name of the checksum manifest
+     *
+     * @param expectedFiles The number of files expected to be copied, or 0 if it is unknown
+     */
+    private void openDestination(int expectedFiles) throws IOException {
+        destinationDirectories = new DestinationDirectories(destinationPath, destinationLayout, filesPerDirectory,
+                                                            expectedFiles);
+        if (checksumManifest != null)
+            checksumManifest.reserveName(destinationDirectories);
+    }
+
+    /**
+     * Copies the randomly selected files one by one, stopping if the calling thread is interrupted
+     *
+     * @throws IOException Thrown if a file could not be copied
+     */
+    private void copyFilesSequentially() throws IOException {
+        try {
+            for (FileEntry randomFileToCopy : randomSelectedFiles) {
+                if (Thread.currentThread().isInterrupted())
+                    break;
+                copyFile(randomFileToCopy);
+            }
+        }
+        catch (InterruptedIOException | ClosedByInterruptException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Copies the randomly selected files with several workers. Stops submitting files
+     * and discards the pending ones if the calling thread is interrupted.
+     */
+    private void copyFilesInParallel() {
+        CopyExecutor copyExecutor = newCopyExecutor();
+        try {
+            for (FileEntry randomFileToCopy : randomSelectedFiles)
+                copyExecutor.submit(randomFileToCopy);
+            copyExecutor.finish();
+        }
+        catch (InterruptedException exception) {
+            copyExecutor.abort();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CopyExecutor newCopyExecutor() {
+        CopyExecutor copyExecutor = new CopyExecutor(copyWorkers, copyWorkers * 2, this::copyFile, this::reportFailure);
+        activeCopyExecutor = copyExecutor;
+        return copyExecutor;
+    }
 
-        for (File randomFileToCopy : randomSelectedFiles)
-            copyFile(randomFileToCopy);
+    private void reportFailure(FileEntry file, Exception exception) {
+        if (exception instanceof InterruptedIOException || exception instanceof ClosedByInterruptException)
+            return;                                                     // Aborted, not failed
+        failedFiles.incrementAndGet();
+        copyListeners.fileFailed(file, exception);
+    }
 
-        int numFilesCopied = randomSelectedFiles.size();
-        ByteSizeRepresentation byteSizeRepresentation = new ByteSizeRepresentation(copiedBytes);
-        String sizeCopied = byteSizeRepresentation.withMaximumDecimals(4, RoundingMode.CEILING);
-        if (outStream != null)
-            outStream.println("Done. " + numFilesCopied + " files, " + sizeCopied + " copied");
+    /**
+     * Draws random files walking the source folder in a random order until the maximum number of files
+     * is reached, the maximum bytes are reached, all the files were drawn, or the thread is interrupted
+     *
+     * @param selectedFiles The consumer of each selected file, as soon as it is drawn
+     */
+    private void drawFilesLimitingBytesAndNumber(Consumer<FileEntry> selectedFiles) {
+        RandomizedFileSampler sampler = new RandomizedFileSampler(sourcePath, filter, random);
+        scannedDirectories = sampler::getDirectoriesRead;
+        long maxBytes = getMaxBytesToCopy();
+        int selectedCount = 0;
+        FileEntry drawnFile;
+        while ((maxFilesToCopy == 0 || selectedCount < maxFilesToCopy) && selectedBytes < maxBytes
+                && ! Thread.currentThread().isInterrupted() && (drawnFile = sampler.nextSample()) != null) {
+            if (drawnFile.getSize() <= maxBytes - selectedBytes) {
+                selectedFiles.accept(drawnFile);
+                if (Thread.currentThread().isInterrupted())
+                    break;                                              // The copy stage stopped before taking it
+                copyListeners.fileSelected(drawnFile);
+                selectedCount++;
+                selectedBytes += drawnFile.getSize();
+                copyListeners.scanProgressed(selectedCount);
+            }
+        }
+
+        copyListeners.scanFinished(selectedCount);
+        if (verbose && selectedCount > 0)
+            copyListeners.notice(selectedCount + " files drawn from " + sampler.getDirectoriesRead() + " directories");
     }
 
     private void selectedFilesLimitingBytesAndNumber() {
-        while (continueFileSelection()) {
-            File randomSourceFile = filesInSource.get(random.nextInt(filesInSource.size()));
-            long fileLength = randomSourceFile.length();
+        PartialShuffleSelector.Selection selection =
+                selector.select(filesInSource.size(), filesInSource::getSize, maxFilesToCopy, getMaxBytesToCopy());
 
-            if (fileLength <= getMaxBytesToCopy() - copiedBytes) {
-                randomSelectedFiles.add(randomSourceFile);
-                copiedBytes += fileLength;
+        for (int selectedIndex : selection.getIndexes()) {
+            FileEntry selectedFile = filesInSource.getEntry(selectedIndex);
+            randomSelectedFiles.add(selectedFile);
+            copyListeners.fileSelected(selectedFile);
+        }
+        selectedBytes = selection.getBytes();
+    }
+
+    private void copyFile(FileEntry fileToCopy) throws IOException {
+        acquirePermits(filesPerSecondLimiter, 1);
+        long copyStartNanos = System.nanoTime();
+        long rateLimitWaitStartNanos = chunkListener.rateLimitWaitNanos();
+        Path targetPath = copyToUniqueName(fileToCopy.getPath());
+        if (performanceRecorder != null)
+            performanceRecorder.record(fileToCopy, System.nanoTime() - copyStartNanos,
+                                       chunkListener.rateLimitWaitNanos() - rateLimitWaitStartNanos);
+        copiedBytes.addAndGet(fileToCopy.getSize());
+        copiedFiles.incrementAndGet();
+        copyListeners.fileCompleted(fileToCopy, targetPath);
+    }
+
+    /**
+     * Copies a file to the destination with a name reserved in the registry of the names of its directory.
+     * If a file with that name was created by others, the copy fails without overwriting and a new
+     * name is reserved. The partial target of an aborted copy is deleted unless the job is journaled.
+     *
+     * @return The path of the copied file
+     */
+    private Path copyToUniqueName(Path filePath) throws IOException {
+        while (true) {
+            Path targetPath = destinationDirectories.reserveTarget(filePath);
+            try {
+                if (journal != null)
+                    journal.started(filePath, destinationPath.relativize(targetPath).toString());
+                placementEngine.copy(filePath, targetPath, chunkListener);
+                if (journal != null)
+                    journal.completed(filePath);
+                return targetPath;
+            }
+            catch (FileAlreadyExistsException exception) {
+                // The reserved name was taken after the destination was listed
             }
+            catch (InterruptedIOException | ClosedByInterruptException exception) {
+                if (journal == null)
+                    Files.deleteIfExists(targetPath);               // Kept by the engine only to be resumed
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Waits for the byte rate limit before each chunk is written, and records the progress after it is written.
+     * The time each copying thread waits for the rate limit is added up, so it can be told apart from the copy time.
+     */
+    private class ChunkListener implements CopyProgressListener {
+
+        private final ThreadLocal<long[]> rateLimitWaitNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+        @Override
+        public void chunkStarting(Path source, long chunkBytes) throws IOException {
+            long waitStartNanos = System.nanoTime();
+            acquirePermits(bytesPerSecondLimiter, chunkBytes);
+            rateLimitWaitNanos.get()[0] += System.nanoTime() - waitStartNanos;
+        }
 
-            filesInSource.remove(randomSourceFile);
+        /**
+         * @return The total time the current thread waited for the byte rate limit
+         */
+        long rateLimitWaitNanos() {
+            return rateLimitWaitNanos.get()[0];
+        }
+
+        @Override
+        public void chunkCopied(Path source, long chunkBytes, long copiedFileBytes, long fileSize) {
+            if (journal != null)
+                journal.progressed(source, copiedFileBytes);
+            copyListeners.bytesCopied(transferredBytes.addAndGet(chunkBytes));
         }
     }
 
-    private void copyFile(File fileToCopy) throws IOException {
-        Path filePath = fileToCopy.toPath();
-        String path = filePath.subpath(filePath.getNameCount() - 3, filePath.getNameCount()).toString();
-        String ensuredFileName = ensuredFileNameOnPath(destinationPath, fileToCopy.getName());
-        Files.copy(filePath, destinationPath.resolve(ensuredFileName), copyOptions);
-        if (verbose) {
-            ByteSizeRepresentation byteSizeRepresentation = new ByteSizeRepresentation(fileToCopy.length());
-            String sizeString = byteSizeRepresentation.withMaximumDecimals(2, RoundingMode.CEILING);
-            if (outStream != null)
-                outStream.println("Copied " + ".../" + path + " [" + sizeString + "]");
+    private void acquirePermits(TokenBucket limiter, long permits) throws InterruptedIOException {
+        try {
+            limiter.acquire(permits);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Copy interrupted while waiting for the rate limit");
         }
     }
 
     /**
      * Ensures that the file name given is unique in the target directory, appending
-     * (1), (2)... (n+1) to the file name in case it already exists
+     * (1), (2)... (n+1) to the file name, before its extension if it has one, in case it already exists.
+     * It checks the file system for every candidate name; the copies reserve their names in a
+     * {@link FileNameRegistry} of the destination instead.
      *
      * @param fileName   The string of the file name
      * @param targetPath The path to check if there is a file with the name equals <tt>fileName</tt>
@@ -200,28 +1035,12 @@ public class RandomFileCopier {
      */
     public String ensuredFileNameOnPath(Path targetPath, String fileName) {
         String newName = fileName;
-        if (targetPath.resolve(fileName).toFile().exists()) {
-            int pos = fileName.lastIndexOf('.');
-            newName = fileName.substring(0, pos) + "(1)." + fileName.substring(pos + 1);
-        }
-        while (targetPath.resolve(newName).toFile().exists()) {
-            int posL = newName.lastIndexOf('(');
-            int posR = newName.lastIndexOf(')');
-            int num = Integer.parseInt(newName.substring(posL + 1, posR));
-            newName = newName.substring(0, posL + 1) + ++ num + newName.substring(posR);
-        }
+        int number = 1;
+        while (targetPath.resolve(newName).toFile().exists())
+            newName = FileNameRegistry.numberedName(fileName, number++);
         return newName;
     }
 
-    private boolean continueFileSelection() {
-        boolean continueSelection;
-        if (filesInSource.size() < maxFilesToCopy || maxFilesToCopy == 0)
-            continueSelection = copiedBytes < getMaxBytesToCopy() && ! filesInSource.isEmpty();
-        else
-            continueSelection = randomSelectedFiles.size() < maxFilesToCopy;
-        return continueSelection;
-    }
-
     public long getMaxBytesToCopy() {
         boolean areAvailableBytes = maxBytesToCopy <= destinationPath.toFile().getUsableSpace();
         return areAvailableBytes ? maxBytesToCopy : destinationPath.toFile().getUsableSpace();
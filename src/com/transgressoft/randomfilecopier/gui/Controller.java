@@ -16,10 +16,15 @@
 
 package com.transgressoft.randomfilecopier.gui;
 
+import com.transgressoft.commons.util.*;
 import com.transgressoft.randomfilecopier.*;
 import org.controlsfx.control.*;
 
 import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
 import javafx.application.*;
 import javafx.beans.binding.*;
 import javafx.collections.*;
@@ -31,6 +36,8 @@ import javafx.scene.input.*;
 import javafx.scene.layout.*;
 import javafx.stage.*;
 
+import static java.nio.file.StandardOpenOption.*;
+
 /**
  * @author Octavio Calleya
  * @version 0.2.6
@@ -46,6 +53,8 @@ public class Controller {
     private static final String DIRECTORY_ERROR_TEXT = "Source/target directory doesn't exist or is corrupt";
     private static final String TARGET_WARNING_TEXT = "Target directory doesn't exist or is not a directory";
     private static final String SOURCE_WARNING_TEXT = "Source directory doesn't exist or is not a directory";
+    private static final int LOG_CAPACITY = 10000;
+    private static final Path LOG_FILE = Paths.get(System.getProperty("user.home"), "RandomFileCopier.log");
 
     @FXML
     private Button openSourceBT;
@@ -62,7 +71,15 @@ public class Controller {
     @FXML
     private TextField maxBytesTF;
     @FXML
-    private TextArea logTA;
+    private TextField maxBytesPerSecondTF;
+    @FXML
+    private TextField maxFilesPerSecondTF;
+    @FXML
+    private CheckBox liveIndexCB;
+    @FXML
+    private CheckBox logFileCB;
+    @FXML
+    private ListView<String> logLV;
     @FXML
     private GridPane optionsGP;
     private CheckComboBox<String> extensionsCCB;
@@ -70,22 +87,41 @@ public class Controller {
     private File source;
     private File destination;
     private RandomFileCopierThread copyThread;
-    private PrintStream textAreaPrinter;
+    private LogSink logSink;
+    private PrintStream logPrinter;
+    private LogLines logLines;
+    private ExecutorService logFileExecutor;
+    private BufferedWriter logFileWriter;
+    private boolean logFileFailed;
     private boolean sourceChanged;
     private boolean destinationChanged;
     private DirectoryChooserHelper directoryChooserHelper;
     private AlertHelper alertHelper;
     private RandomFileCopier copier;
+    private LiveDirectoryIndex liveIndex;
 
     @FXML
     public void initialize() {
-        textAreaPrinter = new PrintStream(new CustomOutputStream(logTA));
+        logLines = new LogLines(LOG_CAPACITY);
+        logLV.setItems(logLines);
+        logFileCB.setTooltip(new Tooltip(LOG_FILE.toString()));
+        logFileExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread logFileThread = new Thread(runnable, "RandomFileCopier-log-file");
+            logFileThread.setDaemon(true);
+            return logFileThread;
+        });
+        logFileCB.selectedProperty().addListener((obs, oldValue, newValue) -> writeLogFile(this::reopenLogFile));
+        logSink = new LogSink(this::showLogLines);
+        logSink.start();
+        logPrinter = logSink.printStream();
         addExtensionsCheckComboBox();
         setButtonActions();
         configureSourceTextField();
         configureDestinationTextField();
         configureMaxFilesTextField();
         configureMaxBytesTextField();
+        configureRateLimitTextFields();
+        liveIndexCB.selectedProperty().addListener((obs, oldValue, newValue) -> updateLiveIndex());
         setDirectoryChooserHelper(new DirectoryChooserHelperImpl());
         setAlertHelper(new AlertHelperImpl());
     }
@@ -121,8 +157,10 @@ public class Controller {
     private void setButtonActions() {
         openSourceBT.setOnMouseClicked(event -> {
             source = chooseDirectory();
-            if (source != null)
+            if (source != null) {
                 sourceTF.setText(source.getAbsolutePath());
+                updateLiveIndex();
+            }
         });
         openDestinationBT.setOnMouseClicked(event -> {
             destination = chooseDirectory();
@@ -165,8 +203,10 @@ public class Controller {
                     sourceChanged = false;
                     showWarningDialog(SOURCE_WARNING_TEXT);
                 }
-                else
+                else if (! enteredSource.equals(source)) {
                     source = enteredSource;
+                    updateLiveIndex();
+                }
             }
         });
     }
@@ -230,6 +270,43 @@ public class Controller {
         });
     }
 
+    /**
+     * The rate limits are applied to the running copy when they are committed, pressing Enter or leaving
+     * the field, so that the partial values of a number being typed do not throttle the copy
+     */
+    private void configureRateLimitTextFields() {
+        for (TextField rateLimitTF : new TextField[] {maxBytesPerSecondTF, maxFilesPerSecondTF}) {
+            rateLimitTF.addEventFilter(KeyEvent.KEY_TYPED, event -> {
+                if (! event.getCharacter().matches("[0-9]"))
+                    event.consume();
+            });
+            rateLimitTF.focusedProperty().addListener(l -> {
+                if (! rateLimitTF.isFocused()) {
+                    if (! rateLimitTF.getText().matches("[0-9]+"))
+                        rateLimitTF.setText("0");
+                    applyRateLimits();
+                }
+            });
+            rateLimitTF.setOnAction(event -> applyRateLimits());
+        }
+    }
+
+    private void applyRateLimits() {
+        if (copier != null) {
+            copier.setMaxBytesPerSecond(parsedRateLimit(maxBytesPerSecondTF.getText()));
+            copier.setMaxFilesPerSecond(parsedRateLimit(maxFilesPerSecondTF.getText()));
+        }
+    }
+
+    private long parsedRateLimit(String text) {
+        try {
+            return Long.parseLong(text);
+        }
+        catch (NumberFormatException exception) {
+            return 0;
+        }
+    }
+
     protected File chooseDirectory() {
         return directoryChooserHelper.chooseDirectory();
     }
@@ -239,14 +316,56 @@ public class Controller {
         ObservableList<String> selectedExtensions = extensionsCCB.getCheckModel().getCheckedItems();
         String[] stringExtensions = selectedExtensions.stream().map(s -> s.substring(1)).toArray(String[]::new);
 
-        copier = new RandomFileCopier(source.toPath(), destination.toPath(), maxFiles, textAreaPrinter);
+        copier = new RandomFileCopier(source.toPath(), destination.toPath(), maxFiles, logPrinter);
         copier.setMaxBytesToCopy(Long.parseLong(maxBytesTF.getText()));
         copier.setFilterExtensions(stringExtensions);
         copier.setVerbose(true);
+        copier.setMetricsExported(true);
+        copier.setPerformanceReported(true);
+        copier.setCopyEngine(new ChannelCopyEngine());
+        copier.setLiveIndex(liveIndex);
+        copier.setMaxBytesPerSecond(parsedRateLimit(maxBytesPerSecondTF.getText()));
+        copier.setMaxFilesPerSecond(parsedRateLimit(maxFilesPerSecondTF.getText()));
         copyThread = new RandomFileCopierThread();
         copyThread.start();
     }
 
+    /**
+     * Replaces the live index with a new one of the current source directory if the live index
+     * option is selected. The initial scan of the new index runs in a background thread.
+     */
+    private void updateLiveIndex() {
+        closeLiveIndex();
+        if (liveIndexCB.isSelected() && source != null && source.isDirectory()) {
+            LiveDirectoryIndex newLiveIndex = new LiveDirectoryIndex(source.toPath());
+            liveIndex = newLiveIndex;
+            Thread indexThread = new Thread(() -> {
+                try {
+                    newLiveIndex.start();
+                    if (newLiveIndex.isReady())
+                        logPrinter.println("Live index of " + newLiveIndex.getRootDirectory() + " ready");
+                }
+                catch (IOException exception) {
+                    logPrinter.println("ERROR: live index could not be started: " + exception.getMessage());
+                }
+            });
+            indexThread.setDaemon(true);
+            indexThread.start();
+        }
+    }
+
+    private void closeLiveIndex() {
+        if (liveIndex != null) {
+            try {
+                liveIndex.close();
+            }
+            catch (IOException exception) {
+                logPrinter.println("ERROR: live index could not be closed: " + exception.getMessage());
+            }
+            liveIndex = null;
+        }
+    }
+
     private void abort() {
         copyThread.interrupt();
     }
@@ -256,35 +375,128 @@ public class Controller {
         alert.showAndWait();
     }
 
-    private class RandomFileCopierThread extends Thread {
+    /**
+     * Shows the lines printed since the previous frame, and appends them to the log file if selected,
+     * since only the last lines are kept in the log view. The log file is written by its own thread,
+     * so a slow disk does not stall the user interface, and flushed when a job ends or the application closes.
+     */
+    private void showLogLines(List<String> lines) {
+        List<String> strippedLines = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            int end = line.length();
+            while (end > 0 && (line.charAt(end - 1) == '\n' || line.charAt(end - 1) == '\r'))
+                end--;
+            strippedLines.add(line.substring(0, end));
+        }
+        if (logFileCB.isSelected())
+            writeLogFile(() -> spillToLogFile(lines));
+        logLines.append(strippedLines);
+        logLV.scrollTo(logLines.size() - 1);
+    }
 
-        @Override
-        public void run() {
+    /**
+     * Runs a task in the thread of the log file, which is the only one that uses the writer of the file
+     */
+    private void writeLogFile(Runnable task) {
+        if (! logFileExecutor.isShutdown())
+            logFileExecutor.execute(task);
+    }
+
+    private void spillToLogFile(List<String> lines) {
+        if (logFileFailed)
+            return;
+        try {
+            if (logFileWriter == null)
+                logFileWriter = Files.newBufferedWriter(LOG_FILE, StandardCharsets.UTF_8, CREATE, APPEND);
+            for (String line : lines)
+                logFileWriter.write(line);
+        }
+        catch (IOException exception) {
+            reportLogFileError("ERROR: log file could not be written: " + exception.getMessage());
+        }
+    }
+
+    private void flushLogFile() {
+        if (logFileWriter != null) {
             try {
-                copier.randomCopy();
+                logFileWriter.flush();
             }
             catch (IOException exception) {
-                Platform.runLater(() -> {
-                    showWarningDialog(DIRECTORY_ERROR_TEXT);
-                    logTA.appendText("ERROR: " + exception.getMessage());
-                });
+                reportLogFileError("ERROR: log file could not be written: " + exception.getMessage());
             }
-            Platform.runLater(() -> copyStopBT.setText(COPY_TEXT));
         }
     }
 
-    private class CustomOutputStream extends OutputStream {
+    private void closeLogFile() {
+        if (logFileWriter != null) {
+            try {
+                logFileWriter.close();
+            }
+            catch (IOException exception) {
+                logPrinter.println("ERROR: log file could not be closed: " + exception.getMessage());
+            }
+            logFileWriter = null;
+        }
+    }
 
-        private TextArea textArea;
+    /**
+     * Closes the log file, so it is opened again with the next lines, when the log file option changes
+     */
+    private void reopenLogFile() {
+        closeLogFile();
+        logFileFailed = false;
+    }
 
-        public CustomOutputStream(TextArea textArea) {
-            super();
-            this.textArea = textArea;
+    private void reportLogFileError(String message) {
+        closeLogFile();
+        logFileFailed = true;
+        Platform.runLater(() -> {
+            logLines.append(Collections.singletonList(message));
+            logFileCB.setSelected(false);
+        });
+    }
+
+    /**
+     * Passes the lines printed so far to the log view, and flushes them to the log file
+     */
+    private void flushLog() {
+        logSink.drain();
+        writeLogFile(this::flushLogFile);
+    }
+
+    /**
+     * Closes the live index and the log file, writing the lines still pending.
+     * Must be called from the JavaFX application thread when the application closes.
+     */
+    void close() {
+        closeLiveIndex();
+        logSink.stop();
+        logSink.drain();
+        writeLogFile(this::closeLogFile);
+        logFileExecutor.shutdown();
+        try {
+            logFileExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
         }
+    }
+
+    private class RandomFileCopierThread extends Thread {
 
         @Override
-        public void write(int b) throws IOException {
-            Platform.runLater(() -> textArea.appendText(String.valueOf((char) b)));
+        public void run() {
+            try {
+                copier.randomCopy();
+            }
+            catch (IOException exception) {
+                logPrinter.println("ERROR: " + exception.getMessage());
+                Platform.runLater(() -> showWarningDialog(DIRECTORY_ERROR_TEXT));
+            }
+            Platform.runLater(() -> {
+                copyStopBT.setText(COPY_TEXT);
+                flushLog();
+            });
         }
     }
 
@@ -294,7 +506,7 @@ public class Controller {
         public File chooseDirectory() {
             DirectoryChooser chooser = new DirectoryChooser();
             chooser.setTitle("Choose folder");
-            return chooser.showDialog(logTA.getScene().getWindow());
+            return chooser.showDialog(logLV.getScene().getWindow());
         }
     }
 
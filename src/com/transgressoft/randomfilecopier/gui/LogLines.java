@@ -0,0 +1,90 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier.gui;
+
+import java.util.*;
+import javafx.collections.*;
+
+/**
+ * Observable list of the last lines of the log, stored in a ring buffer of fixed capacity. Once the buffer
+ * is full, appending a line discards the oldest one, so the memory used by the log, and the cost of each
+ * append, does not grow with the number of lines printed. Shown in a {@code ListView}, only the visible
+ * lines are rendered.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+class LogLines extends ObservableListBase<String> {
+
+    private final String[] ringBuffer;
+    private int first;
+    private int size;
+
+    /**
+     * Default constructor
+     *
+     * @param capacity The maximum number of lines kept
+     *
+     * @throws IllegalArgumentException Thrown if {@code capacity} is less than 1
+     */
+    LogLines(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity argument less than one");
+        ringBuffer = new String[capacity];
+    }
+
+    /**
+     * Appends lines at the end of the log, discarding the oldest lines if the capacity is exceeded
+     *
+     * @param lines The lines to append
+     */
+    void append(List<String> lines) {
+        if (lines.isEmpty())
+            return;
+        int capacity = ringBuffer.length;
+        List<String> appendedLines = lines.size() > capacity ? lines.subList(lines.size() - capacity, lines.size()) : lines;
+        int discarded = Math.max(0, size + appendedLines.size() - capacity);
+        List<String> discardedLines = new ArrayList<>(discarded);
+        for (int i = 0; i < discarded; i++)
+            discardedLines.add(get(i));
+
+        first = (first + discarded) % capacity;
+        size -= discarded;
+        for (String line : appendedLines) {
+            ringBuffer[(first + size) % capacity] = line;
+            size++;
+        }
+
+        beginChange();
+        if (discarded > 0)
+            nextRemove(0, discardedLines);
+        nextAdd(size - appendedLines.size(), size);
+        endChange();
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return ringBuffer[(first + index) % ringBuffer.length];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
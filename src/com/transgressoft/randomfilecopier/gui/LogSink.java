@@ -0,0 +1,122 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier.gui;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import javafx.animation.*;
+
+/**
+ * {@link OutputStream} that collects the text printed by any thread as whole lines decoded from UTF-8, and
+ * passes them to the user interface in batches. The lines are queued in a lock-free queue and drained by an
+ * {@link AnimationTimer} at most once per frame, so the printing threads never wait for the JavaFX
+ * application thread, and its event queue is not flooded however fast the lines are printed.
+ *
+ * <p>Text is only passed on when its line ends, since the bytes of a line may not be a whole UTF-8
+ * sequence until then.</p>
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+class LogSink extends OutputStream {
+
+    private final Queue<String> pendingLines = new ConcurrentLinkedQueue<>();
+    private final ByteArrayOutputStream lineBytes = new ByteArrayOutputStream(256);
+    private final Consumer<List<String>> linesConsumer;
+    private final AnimationTimer frameTimer;
+
+    /**
+     * Default constructor
+     *
+     * @param linesConsumer The consumer of the lines printed since the previous frame, ending with
+     *                      their line separator, called from the JavaFX application thread
+     */
+    LogSink(Consumer<List<String>> linesConsumer) {
+        frameTimer = new AnimationTimer() {
+
+            @Override
+            public void handle(long now) {
+                drain();
+            }
+        };
+        this.linesConsumer = linesConsumer;
+    }
+
+    /**
+     * Passes the lines queued so far to the user interface without waiting for the next frame.
+     * Must be called from the JavaFX application thread.
+     */
+    void drain() {
+        if (! pendingLines.isEmpty()) {
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = pendingLines.poll()) != null)
+                lines.add(line);
+            linesConsumer.accept(lines);
+        }
+    }
+
+    /**
+     * Starts passing the lines to the user interface. Must be called from the JavaFX application thread.
+     */
+    void start() {
+        frameTimer.start();
+    }
+
+    void stop() {
+        frameTimer.stop();
+    }
+
+    /**
+     * @return A {@link PrintStream} that prints to this sink encoding the text in UTF-8
+     */
+    PrintStream printStream() {
+        try {
+            return new PrintStream(this, false, StandardCharsets.UTF_8.name());
+        }
+        catch (UnsupportedEncodingException exception) {
+            throw new IllegalStateException(exception);                 // UTF-8 is always supported
+        }
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        lineBytes.write(b);
+        if (b == '\n')
+            queueLine();
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        int lineStart = offset;
+        for (int i = offset; i < offset + length; i++)
+            if (bytes[i] == '\n') {
+                lineBytes.write(bytes, lineStart, i + 1 - lineStart);
+                queueLine();
+                lineStart = i + 1;
+            }
+        lineBytes.write(bytes, lineStart, offset + length - lineStart);
+    }
+
+    private void queueLine() {
+        pendingLines.add(new String(lineBytes.toByteArray(), StandardCharsets.UTF_8));
+        lineBytes.reset();
+    }
+}
@@ -30,13 +30,17 @@ import javafx.stage.*;
  */
 public class RandomFileCopierFx extends Application {
 
+	private Controller controller;
+
 	public static void main(String[] args) {
 		launch(args);
 	}
 
 	@Override
 	public void start(Stage primaryStage) throws Exception {
-        AnchorPane rootAP = FXMLLoader.load(getClass().getResource("/layout.fxml"));
+        FXMLLoader loader = new FXMLLoader(getClass().getResource("/layout.fxml"));
+        AnchorPane rootAP = loader.load();
+        controller = loader.getController();
 
 		Scene scene = new Scene(rootAP, 700, 400);
 		primaryStage.setMinHeight(450);
@@ -45,4 +49,10 @@ public class RandomFileCopierFx extends Application {
 		primaryStage.setScene(scene);
 		primaryStage.show();
 	}
+
+	@Override
+	public void stop() {
+		if (controller != null)
+			controller.close();
+	}
 }
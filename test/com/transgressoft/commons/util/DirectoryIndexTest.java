@@ -0,0 +1,196 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class DirectoryIndexTest {
+
+    FileAttributesFilter allFiles = (path, attributes) -> attributes.isRegularFile();
+    Path rootDirectory;
+    Path cacheDirectory;
+    Path indexFile;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        rootDirectory = Files.createTempDirectory("directoryIndex");
+        Files.createDirectories(rootDirectory.resolve("a"));
+        Files.createDirectories(rootDirectory.resolve("b"));
+        Files.write(rootDirectory.resolve("root.txt"), new byte[10]);
+        Files.write(rootDirectory.resolve("a").resolve("a1.txt"), new byte[20]);
+        Files.write(rootDirectory.resolve("a").resolve("a2.txt"), new byte[30]);
+        Files.write(rootDirectory.resolve("b").resolve("b1.txt"), new byte[40]);
+        setModifiedAgo(rootDirectory.resolve("a"), 60_000);
+        setModifiedAgo(rootDirectory.resolve("b"), 60_000);
+        setModifiedAgo(rootDirectory, 60_000);
+        cacheDirectory = Files.createTempDirectory("directoryIndexCache");
+        indexFile = DirectoryIndex.indexFileIn(cacheDirectory, rootDirectory);
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        deleteTree(rootDirectory);
+        deleteTree(cacheDirectory);
+    }
+
+    @Test
+    @DisplayName ("Lists every directory when there is no index")
+    public void listsEverythingWithoutIndex() throws IOException {
+        DirectoryIndex index = new DirectoryIndex(rootDirectory, indexFile);
+
+        List<FileEntry> entries = index.refreshed(allFiles);
+
+        assertEquals(fileNames("root.txt", "a1.txt", "a2.txt", "b1.txt"), fileNames(entries));
+        assertEquals(3, index.getRescannedDirectories());
+        assertEquals(0, index.getReusedDirectories());
+        assertTrue(Files.isRegularFile(indexFile));
+    }
+
+    @Test
+    @DisplayName ("Reuses the saved directories whose modification time did not change")
+    public void reusesSavedIndex() throws IOException {
+        List<FileEntry> listed = new DirectoryIndex(rootDirectory, indexFile).refreshed(allFiles);
+        DirectoryIndex index = new DirectoryIndex(rootDirectory, indexFile);
+
+        List<FileEntry> loaded = index.refreshed(allFiles);
+
+        assertEquals(new HashSet<>(listed), new HashSet<>(loaded));
+        assertEquals(0, index.getRescannedDirectories());
+        assertEquals(3, index.getReusedDirectories());
+    }
+
+    @Test
+    @DisplayName ("Rescans only the directories whose modification time changed")
+    public void revalidatesModifiedDirectories() throws IOException {
+        new DirectoryIndex(rootDirectory, indexFile).refreshed(allFiles);
+        Path directoryA = rootDirectory.resolve("a");
+        Files.write(directoryA.resolve("a3.txt"), new byte[50]);
+        Files.delete(directoryA.resolve("a1.txt"));
+        setModifiedAgo(directoryA, 30_000);
+        DirectoryIndex index = new DirectoryIndex(rootDirectory, indexFile);
+
+        List<FileEntry> entries = index.refreshed(allFiles);
+
+        assertEquals(fileNames("root.txt", "a2.txt", "a3.txt", "b1.txt"), fileNames(entries));
+        assertEquals(1, index.getRescannedDirectories());
+        assertEquals(2, index.getReusedDirectories());
+    }
+
+    @Test
+    @DisplayName ("Applies the filter to the indexed attributes")
+    public void appliesFilter() throws IOException {
+        new DirectoryIndex(rootDirectory, indexFile).refreshed(allFiles);
+        DirectoryIndex index = new DirectoryIndex(rootDirectory, indexFile);
+
+        List<FileEntry> entries = index.refreshed((path, attributes) -> attributes.size() >= 30);
+
+        assertEquals(fileNames("a2.txt", "b1.txt"), fileNames(entries));
+        assertEquals(30, entries.stream().filter(entry -> entry.getPath().endsWith("a2.txt")).findFirst().get().getSize());
+    }
+
+    @Test
+    @DisplayName ("Lists every directory again when the index is corrupt")
+    public void ignoresCorruptIndex() throws IOException {
+        new DirectoryIndex(rootDirectory, indexFile).refreshed(allFiles);
+        byte[] saved = Files.readAllBytes(indexFile);
+        Files.write(indexFile, Arrays.copyOf(saved, saved.length / 2));
+        DirectoryIndex index = new DirectoryIndex(rootDirectory, indexFile);
+
+        List<FileEntry> entries = index.refreshed(allFiles);
+
+        assertEquals(fileNames("root.txt", "a1.txt", "a2.txt", "b1.txt"), fileNames(entries));
+        assertEquals(3, index.getRescannedDirectories());
+    }
+
+    @Test
+    @DisplayName ("Lists again the directories modified within the timestamp granularity")
+    public void rescansRecentlyModifiedDirectories() throws IOException {
+        setModifiedAgo(rootDirectory.resolve("a"), 0);
+        new DirectoryIndex(rootDirectory, indexFile).refreshed(allFiles);
+        FileTime modified = Files.getLastModifiedTime(rootDirectory.resolve("a"));
+        Files.write(rootDirectory.resolve("a").resolve("a3.txt"), new byte[50]);
+        Files.setLastModifiedTime(rootDirectory.resolve("a"), modified);
+        DirectoryIndex index = new DirectoryIndex(rootDirectory, indexFile);
+
+        List<FileEntry> entries = index.refreshed(allFiles);
+
+        assertEquals(fileNames("root.txt", "a1.txt", "a2.txt", "a3.txt", "b1.txt"), fileNames(entries));
+        assertEquals(1, index.getRescannedDirectories());
+        assertEquals(2, index.getReusedDirectories());
+    }
+
+    @Test
+    @DisplayName ("Leaves out the index file saved in the indexed directory")
+    public void leavesOutIndexFile() throws IOException {
+        Path rootIndexFile = rootDirectory.resolve("index.idx");
+        FileTime modified = Files.getLastModifiedTime(rootDirectory);
+        new DirectoryIndex(rootDirectory, rootIndexFile).refreshed(allFiles);
+        Files.setLastModifiedTime(rootDirectory, modified);
+        DirectoryIndex index = new DirectoryIndex(rootDirectory, rootIndexFile);
+
+        List<FileEntry> entries = index.refreshed(allFiles);
+
+        assertTrue(Files.isRegularFile(rootIndexFile));
+        assertEquals(fileNames("root.txt", "a1.txt", "a2.txt", "b1.txt"), fileNames(entries));
+        assertEquals(0, index.getRescannedDirectories());
+    }
+
+    @Test
+    @DisplayName ("Leaves out the cache directory of the index file inside the indexed directory")
+    public void leavesOutCacheDirectory() throws IOException {
+        Path cacheInRoot = Files.createDirectories(rootDirectory.resolve("cache"));
+        Files.write(cacheInRoot.resolve("other.idx"), new byte[60]);
+        Path cachedIndexFile = DirectoryIndex.indexFileIn(cacheInRoot, rootDirectory);
+        DirectoryIndex index = new DirectoryIndex(rootDirectory, cachedIndexFile);
+
+        List<FileEntry> entries = index.refreshed(allFiles);
+
+        assertTrue(Files.isRegularFile(cachedIndexFile));
+        assertEquals(fileNames("root.txt", "a1.txt", "a2.txt", "b1.txt"), fileNames(entries));
+        assertEquals(3, index.getRescannedDirectories());
+    }
+
+    private void setModifiedAgo(Path path, long millis) throws IOException {
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - millis));
+    }
+
+    private void deleteTree(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(path);
+        }
+    }
+
+    private Set<String> fileNames(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    private Set<String> fileNames(List<FileEntry> entries) {
+        return entries.stream().map(entry -> entry.getPath().getFileName().toString()).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,116 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class FileCatalogTest {
+
+    Path musicDirectory = Paths.get("music", "album");
+    Path picturesDirectory = Paths.get("pictures");
+
+    @Test
+    @DisplayName ("Retrieves the attributes of the added files")
+    public void retrievesAddedFiles() {
+        FileCatalog catalog = new FileCatalog();
+
+        assertTrue(catalog.isEmpty());
+        assertEquals(0, catalog.add(musicDirectory.resolve("track01.mp3"), 3000, 100));
+        assertEquals(1, catalog.add(new FileEntry(picturesDirectory.resolve("cover.jpg"), 200, 300)));
+        assertEquals(2, catalog.add(musicDirectory.resolve("track02.flac"), 5000, 400));
+
+        assertEquals(3, catalog.size());
+        assertFalse(catalog.isEmpty());
+        assertEquals("track01.mp3", catalog.getFileName(0));
+        assertEquals(musicDirectory, catalog.getDirectory(0));
+        assertEquals(3000, catalog.getSize(0));
+        assertEquals(100, catalog.getLastModified(0));
+        assertEquals(picturesDirectory.resolve("cover.jpg"), catalog.getPath(1));
+        assertEquals("track02.flac", catalog.getFileName(2));
+        assertEquals(new FileEntry(musicDirectory.resolve("track02.flac"), 5000, 400), catalog.getEntry(2));
+    }
+
+    @Test
+    @DisplayName ("Shares the directory of files added out of order")
+    public void sharesDirectories() {
+        FileCatalog catalog = new FileCatalog();
+        catalog.add(musicDirectory.resolve("track01.mp3"), 1, 1);
+        catalog.add(picturesDirectory.resolve("cover.jpg"), 1, 1);
+        catalog.add(musicDirectory.resolve("track02.mp3"), 1, 1);
+
+        assertSame(catalog.getDirectory(0), catalog.getDirectory(2));
+        assertEquals(musicDirectory.resolve("track02.mp3"), catalog.getPath(2));
+    }
+
+    @Test
+    @DisplayName ("Keeps files without parent directory")
+    public void keepsFilesWithoutParent() {
+        FileCatalog catalog = new FileCatalog();
+        catalog.add(Paths.get("README"), 10, 20);
+
+        assertNull(catalog.getDirectory(0));
+        assertEquals(Paths.get("README"), catalog.getPath(0));
+    }
+
+    @Test
+    @DisplayName ("Grows beyond its initial capacity")
+    public void growsBeyondInitialCapacity() {
+        FileCatalog catalog = new FileCatalog();
+        for (int i = 0; i < 5000; i++)
+            catalog.add(musicDirectory.resolve("track" + i + "-with-a-rather-long-file-name.mp3"), i, i * 2L);
+
+        assertEquals(5000, catalog.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(musicDirectory.resolve("track" + i + "-with-a-rather-long-file-name.mp3"), catalog.getPath(i));
+            assertEquals(i, catalog.getSize(i));
+            assertEquals(i * 2L, catalog.getLastModified(i));
+        }
+    }
+
+    @Test
+    @DisplayName ("Starts again from the first index after clear")
+    public void clearsFiles() {
+        FileCatalog catalog = new FileCatalog();
+        catalog.add(musicDirectory.resolve("track01.mp3"), 1, 1);
+        catalog.add(picturesDirectory.resolve("cover.jpg"), 2, 2);
+
+        catalog.clear();
+
+        assertTrue(catalog.isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> catalog.getFileName(0));
+        assertEquals(0, catalog.add(picturesDirectory.resolve("back.jpg"), 3, 3));
+        assertEquals(picturesDirectory.resolve("back.jpg"), catalog.getPath(0));
+        assertEquals(3, catalog.getSize(0));
+    }
+
+    @Test
+    @DisplayName ("Rejects indexes out of bounds")
+    public void rejectsIndexesOutOfBounds() {
+        FileCatalog catalog = new FileCatalog();
+        catalog.add(musicDirectory.resolve("track01.mp3"), 1, 1);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> catalog.getSize(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> catalog.getPath(- 1));
+    }
+}
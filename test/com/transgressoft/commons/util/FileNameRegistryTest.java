@@ -0,0 +1,91 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class FileNameRegistryTest {
+
+    Path directory;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        directory = Files.createTempDirectory("fileNameRegistry");
+        Files.createFile(directory.resolve("cover.jpg"));
+        Files.createFile(directory.resolve("cover(1).jpg"));
+        Files.createFile(directory.resolve("README"));
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files)
+                Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    @DisplayName ("Numbers the names taken in the directory")
+    public void numbersTakenNames() throws IOException {
+        FileNameRegistry registry = new FileNameRegistry(directory);
+
+        assertEquals("track01.mp3", registry.reserve("track01.mp3"));
+        assertEquals("track01(1).mp3", registry.reserve("track01.mp3"));
+        assertEquals("cover(2).jpg", registry.reserve("cover.jpg"));
+        assertEquals("cover(3).jpg", registry.reserve("cover.jpg"));
+    }
+
+    @Test
+    @DisplayName ("Numbers names without extension")
+    public void numbersNamesWithoutExtension() throws IOException {
+        FileNameRegistry registry = new FileNameRegistry(directory);
+
+        assertEquals("README(1)", registry.reserve("README"));
+        assertEquals(".hidden", registry.reserve(".hidden"));
+        assertEquals(".hidden(1)", registry.reserve(".hidden"));
+    }
+
+    @Test
+    @DisplayName ("Concurrent reservations get distinct names")
+    public void concurrentReservationsGetDistinctNames() throws Exception {
+        FileNameRegistry registry = new FileNameRegistry(directory);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> reservations = new ArrayList<>();
+        for (int i = 0; i < 400; i++)
+            reservations.add(executor.submit(() -> registry.reserve("cover.jpg")));
+
+        Set<String> names = new HashSet<>();
+        for (Future<String> reservation : reservations)
+            names.add(reservation.get());
+        executor.shutdown();
+
+        assertEquals(400, names.size());
+        assertFalse(names.contains("cover.jpg"));
+        assertFalse(names.contains("cover(1).jpg"));
+    }
+}
@@ -0,0 +1,72 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class LatencyHistogramTest {
+
+    LatencyHistogram histogram = new LatencyHistogram(1_000_000_000L);
+
+    @Test
+    @DisplayName ("Counts small values exactly")
+    public void countsSmallValuesExactly() {
+        for (int value = 1; value <= 100; value++)
+            histogram.record(value);
+
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(50.5, histogram.getMean(), 0.001);
+    }
+
+    @Test
+    @DisplayName ("Reports large values within one percent")
+    public void reportsLargeValuesWithinOnePercent() {
+        for (long value = 1_000; value <= 100_000_000L; value *= 3) {
+            LatencyHistogram single = new LatencyHistogram(1_000_000_000L);
+            single.record(value);
+            single.record(value + 1);
+            long reported = single.getValueAtPercentile(50);
+            assertTrue(reported >= value && reported <= value * 1.01, value + " reported as " + reported);
+        }
+    }
+
+    @Test
+    @DisplayName ("Keeps the exact maximum of values beyond the highest trackable one")
+    public void keepsExactMaximum() {
+        histogram.record(5);
+        histogram.record(5_000_000_000L);
+
+        assertEquals(5_000_000_000L, histogram.getMax());
+        assertEquals(5, histogram.getValueAtPercentile(50));
+        assertEquals(5_000_000_000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    @DisplayName ("Rejects percentiles out of range")
+    public void rejectsPercentilesOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+}
@@ -0,0 +1,109 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class ParallelFilesInDirectoryTest {
+
+    File sourceTestDirectory = Paths.get("test-resources", "10testfiles").toFile();
+    FileFilter textFilter = file -> file.isFile() && file.getName().endsWith(".txt");
+    FileAttributesFilter textAttributesFilter =
+            (path, attributes) -> attributes.isRegularFile() && path.toString().endsWith(".txt");
+
+    @Test
+    @DisplayName ("Finds the same files as the sequential scan")
+    public void findsSameFilesAsSequentialScan() {
+        Set<File> sequentialFiles = new HashSet<>(new FilesInDirectory(sourceTestDirectory).filtered(textFilter));
+        Set<File> parallelFiles = new HashSet<>(new ParallelFilesInDirectory(sourceTestDirectory, 4).filtered(textFilter));
+
+        assertEquals(10, parallelFiles.size());
+        assertEquals(sequentialFiles, parallelFiles);
+    }
+
+    @Test
+    @DisplayName ("Bounded scan does not exceed the maximum")
+    public void boundedScanDoesNotExceedMaximum() {
+        List<File> files = new ParallelFilesInDirectory(sourceTestDirectory, 4).filteredAndBounded(textFilter, 3);
+
+        assertEquals(3, files.size());
+    }
+
+    @Test
+    @DisplayName ("Finds the same entries as the sequential scan")
+    public void findsSameEntriesAsSequentialScan() {
+        FileEntriesInDirectory sequentialScan = new FileEntriesInDirectory(sourceTestDirectory.toPath());
+        ParallelFilesInDirectory parallelScan = new ParallelFilesInDirectory(sourceTestDirectory, 4);
+        Set<FileEntry> sequentialEntries = new HashSet<>(sequentialScan.filtered(textAttributesFilter));
+        Set<FileEntry> parallelEntries = new HashSet<>(parallelScan.filteredEntries(textAttributesFilter));
+
+        assertEquals(10, parallelEntries.size());
+        assertEquals(sequentialEntries, parallelEntries);
+    }
+
+    @Test
+    @DisplayName ("Bounded scan of entries does not exceed the maximum")
+    public void boundedEntriesScanDoesNotExceedMaximum() {
+        ParallelFilesInDirectory parallelScan = new ParallelFilesInDirectory(sourceTestDirectory, 4);
+        List<FileEntry> entries = parallelScan.filteredAndBoundedEntries(textAttributesFilter, 3);
+
+        assertEquals(3, entries.size());
+    }
+
+    @Test
+    @DisplayName ("Skips the entries that can't be read")
+    public void skipsUnreadableEntries() throws IOException {
+        Path directory = Files.createTempDirectory("parallelEntries");
+        try {
+            Path file = Files.write(directory.resolve("file.txt"), new byte[3]);
+            Files.createSymbolicLink(directory.resolve("dangling.txt"), directory.resolve("deleted.txt"));
+            Files.createSymbolicLink(directory.resolve("cycle"), directory);
+
+            ParallelFilesInDirectory parallelScan = new ParallelFilesInDirectory(directory.toFile(), 4);
+            List<FileEntry> entries = parallelScan.filteredEntries(textAttributesFilter);
+
+            FileEntry fileEntry = new FileEntry(file, 3, Files.getLastModifiedTime(file).toMillis());
+            assertEquals(Collections.singletonList(fileEntry), entries);
+        }
+        finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files)
+                    Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    @DisplayName ("Invalid arguments")
+    public void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelFilesInDirectory(sourceTestDirectory, 0));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new ParallelFilesInDirectory(sourceTestDirectory).filteredAndBounded(textFilter, - 1));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new ParallelFilesInDirectory(new File("nonexistent")).filtered(textFilter));
+    }
+}
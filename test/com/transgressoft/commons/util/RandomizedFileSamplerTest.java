@@ -0,0 +1,111 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class RandomizedFileSamplerTest {
+
+    FileAttributesFilter allFiles = (path, attributes) -> attributes.isRegularFile();
+    Random random = new Random(42);
+    Path rootDirectory;
+    List<Path> files = new ArrayList<>();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        rootDirectory = Files.createTempDirectory("randomizedFileSampler");
+        createFiles(rootDirectory, "root", 2);
+        createFiles(rootDirectory.resolve("a"), "a", 3);
+        createFiles(rootDirectory.resolve("b").resolve("c"), "c", 10);
+        createFiles(rootDirectory.resolve("b").resolve("d"), "d", 5);
+        Files.createDirectories(rootDirectory.resolve("empty"));
+    }
+
+    private void createFiles(Path directory, String prefix, int count) throws IOException {
+        Files.createDirectories(directory);
+        for (int i = 0; i < count; i++)
+            files.add(Files.write(directory.resolve(prefix + i + ".txt"), new byte[i + 1]));
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        try (Stream<Path> paths = Files.walk(rootDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(path);
+        }
+    }
+
+    @Test
+    @DisplayName ("Draws every file once")
+    public void drawsEveryFileOnce() {
+        RandomizedFileSampler sampler = new RandomizedFileSampler(rootDirectory, allFiles, random);
+
+        List<FileEntry> sample = sampler.sample(files.size() + 5);
+
+        assertEquals(files.size(), sample.size());
+        assertEquals(new HashSet<>(files), sample.stream().map(FileEntry::getPath).collect(Collectors.toSet()));
+        assertNull(sampler.nextSample());
+        assertEquals(files.size(), sampler.getEstimatedFiles());
+    }
+
+    @Test
+    @DisplayName ("Draws only the files that satisfy the filter")
+    public void respectsFilter() {
+        FileAttributesFilter largeFiles = (path, attributes) -> attributes.isRegularFile() && attributes.size() > 2;
+        RandomizedFileSampler sampler = new RandomizedFileSampler(rootDirectory, largeFiles, random);
+
+        List<FileEntry> sample = sampler.sample(files.size());
+
+        assertEquals(12, sample.size());
+        assertTrue(sample.stream().allMatch(entry -> entry.getSize() > 2));
+    }
+
+    @Test
+    @DisplayName ("Reads only part of the tree for a small sample")
+    public void readsPartOfTheTree() {
+        RandomizedFileSampler sampler = new RandomizedFileSampler(rootDirectory, allFiles, random);
+
+        assertTrue(sampler.nextSample() != null);
+        assertTrue(sampler.getDirectoriesRead() <= 6);
+        assertTrue(sampler.getEstimatedFiles() > 0);
+    }
+
+    @Test
+    @DisplayName ("Draws the first file close to uniformly")
+    public void drawsCloseToUniformly() {
+        int trials = 10000;
+        Map<Path, Integer> timesDrawn = new HashMap<>();
+        for (int trial = 0; trial < trials; trial++) {
+            RandomizedFileSampler sampler = new RandomizedFileSampler(rootDirectory, allFiles, random);
+            timesDrawn.merge(sampler.nextSample().getPath(), 1, Integer::sum);
+        }
+
+        double expected = (double) trials / files.size();
+        for (Path file : files)
+            assertEquals(expected, timesDrawn.getOrDefault(file, 0), expected * 0.25, file.toString());
+    }
+}
@@ -0,0 +1,80 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class ReservoirSamplerTest {
+
+    Random random = new Random(42);
+
+    @Test
+    @DisplayName ("Keeps all the elements if less than the sample size are offered")
+    public void keepsAllElementsOfShortSequences() {
+        ReservoirSampler<Integer> sampler = new ReservoirSampler<>(10, random);
+        IntStream.range(0, 4).boxed().forEach(sampler);
+
+        assertEquals(4, sampler.getElementsSeen());
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3)), new HashSet<>(sampler.getSample()));
+    }
+
+    @Test
+    @DisplayName ("Samples the given number of distinct elements")
+    public void samplesDistinctElements() {
+        ReservoirSampler<Integer> sampler = new ReservoirSampler<>(100, random);
+        IntStream.range(0, 100_000).boxed().forEach(sampler);
+
+        List<Integer> sample = sampler.getSample();
+        assertEquals(100_000, sampler.getElementsSeen());
+        assertEquals(100, sample.size());
+        assertEquals(100, new HashSet<>(sample).size());
+        assertTrue(sample.stream().allMatch(element -> element >= 0 && element < 100_000));
+    }
+
+    @Test
+    @DisplayName ("Samples every element with the same probability")
+    public void samplesUniformly() {
+        int elements = 20;
+        int sampleSize = 5;
+        int trials = 20_000;
+        int[] timesSampled = new int[elements];
+        for (int trial = 0; trial < trials; trial++) {
+            ReservoirSampler<Integer> sampler = new ReservoirSampler<>(sampleSize, random);
+            IntStream.range(0, elements).boxed().forEach(sampler);
+            for (int element : sampler.getSample())
+                timesSampled[element]++;
+        }
+
+        double expected = (double) trials * sampleSize / elements;
+        for (int element = 0; element < elements; element++)
+            assertEquals(expected, timesSampled[element], expected * 0.1, "Element " + element);
+    }
+
+    @Test
+    @DisplayName ("Rejects an empty sample")
+    public void rejectsEmptySample() {
+        assertThrows(IllegalArgumentException.class, () -> new ReservoirSampler<>(0, random));
+    }
+}
@@ -0,0 +1,137 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class TokenBucketTest {
+
+    @Test
+    @DisplayName ("Grants the permits at the configured rate")
+    public void grantsAtConfiguredRate() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 5; i++)
+            bucket.acquire(100);
+
+        long elapsedMillis = millisSince(start);
+        assertTrue(elapsedMillis >= 450, "Granted too soon: " + elapsedMillis + " ms");
+        assertTrue(elapsedMillis < 1500, "Granted too late: " + elapsedMillis + " ms");
+    }
+
+    @Test
+    @DisplayName ("Grants a request larger than the burst without splitting it")
+    public void grantsRequestLargerThanBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000);
+        Thread.sleep(1500);
+        long start = System.nanoTime();
+
+        bucket.acquire(1000);
+        long burstMillis = millisSince(start);
+        bucket.acquire(1500);
+
+        long elapsedMillis = millisSince(start);
+        assertTrue(burstMillis < 200, "Burst not granted right away: " + burstMillis + " ms");
+        assertTrue(elapsedMillis >= 1400, "Granted too soon: " + elapsedMillis + " ms");
+        assertTrue(elapsedMillis < 2500, "Granted too late: " + elapsedMillis + " ms");
+    }
+
+    @Test
+    @DisplayName ("A rate of 0 grants every request right away")
+    public void zeroRateIsUnlimited() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(0);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 1000; i++)
+            bucket.acquire(Long.MAX_VALUE / 2000);
+
+        assertTrue(millisSince(start) < 200);
+    }
+
+    @Test
+    @DisplayName ("Changing the rate wakes up the threads already waiting")
+    public void rateChangeWakesWaiters() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1);
+        Thread waiter = acquiringThread(bucket, 100);
+        waiter.start();
+        Thread.sleep(100);
+        assertTrue(waiter.isAlive());
+
+        long start = System.nanoTime();
+        bucket.setPermitsPerSecond(1000);
+        waiter.join(2000);
+
+        assertFalse(waiter.isAlive());
+        assertTrue(millisSince(start) < 1000);
+    }
+
+    @Test
+    @DisplayName ("Removing the limit grants the pending requests")
+    public void removingLimitGrantsPendingRequests() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1);
+        Thread waiter = acquiringThread(bucket, 100);
+        waiter.start();
+        Thread.sleep(100);
+        assertTrue(waiter.isAlive());
+
+        bucket.setPermitsPerSecond(0);
+        waiter.join(1000);
+
+        assertFalse(waiter.isAlive());
+        assertEquals(0.0, bucket.getPermitsPerSecond(), 0.0);
+    }
+
+    @Test
+    @DisplayName ("An interrupted request throws")
+    public void interruptedRequestThrows() {
+        TokenBucket bucket = new TokenBucket(1);
+        Thread.currentThread().interrupt();
+
+        assertThrows(InterruptedException.class, () -> bucket.acquire(100));
+        assertFalse(Thread.interrupted());
+    }
+
+    @Test
+    @DisplayName ("Rejects a negative rate")
+    public void rejectsNegativeRate() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(- 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(10).setPermitsPerSecond(- 1));
+    }
+
+    private Thread acquiringThread(TokenBucket bucket, long permits) {
+        return new Thread(() -> {
+            try {
+                bucket.acquire(permits);
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
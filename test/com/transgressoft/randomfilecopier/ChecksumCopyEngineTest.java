@@ -0,0 +1,134 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+import static java.nio.file.StandardOpenOption.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class ChecksumCopyEngineTest {
+
+    Path directory;
+    Path source;
+    Path target;
+    byte[] content = new byte[10 * 1024];
+    Map<Path, String> checksums = new HashMap<>();
+    CopyProgressListener listener = (file, chunkBytes, copiedBytes, fileSize) -> {};
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        directory = Files.createTempDirectory("checksumEngine");
+        new Random(42).nextBytes(content);
+        source = Files.write(directory.resolve("source.bin"), content);
+        target = directory.resolve("target.bin");
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files)
+                Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    @DisplayName ("Passes the CRC32 of the source along with the target")
+    public void passesCrc32OfSource() throws IOException {
+        ChecksumCopyEngine engine = new ChecksumCopyEngine(ChecksumAlgorithm.CRC32, true, checksums::put, 1024);
+
+        engine.copy(source, target, listener);
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(content);
+        assertEquals(Collections.singletonMap(target, String.format("%08x", crc32.getValue())), checksums);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(Files.getLastModifiedTime(source), Files.getLastModifiedTime(target));
+    }
+
+    @Test
+    @DisplayName ("Rejects a target corrupted during the copy")
+    public void rejectsCorruptedTarget() {
+        CopyProgressListener corruptingListener = (file, chunkBytes, copiedBytes, fileSize) -> {
+            if (copiedBytes == fileSize)
+                overwriteFirstByte(target);
+        };
+        ChecksumCopyEngine engine = new ChecksumCopyEngine(ChecksumAlgorithm.CRC32, true, checksums::put, 1024);
+
+        assertThrows(IOException.class, () -> engine.copy(source, target, corruptingListener));
+        assertFalse(Files.exists(target));
+        assertTrue(checksums.isEmpty());
+    }
+
+    @Test
+    @DisplayName ("Rejects a target whose size differs from the source")
+    public void rejectsTargetOfDifferentSize() {
+        CopyProgressListener growingListener = (file, chunkBytes, copiedBytes, fileSize) -> {
+            if (copiedBytes == fileSize)
+                append(target, new byte[1]);
+        };
+        ChecksumCopyEngine engine = new ChecksumCopyEngine(ChecksumAlgorithm.SHA_256, true, checksums::put, 1024);
+
+        assertThrows(IOException.class, () -> engine.copy(source, target, growingListener));
+        assertFalse(Files.exists(target));
+        assertTrue(checksums.isEmpty());
+    }
+
+    @Test
+    @DisplayName ("Does not read back the target if the verification is disabled")
+    public void skipsVerification() throws IOException {
+        CopyProgressListener corruptingListener = (file, chunkBytes, copiedBytes, fileSize) -> {
+            if (copiedBytes == fileSize)
+                overwriteFirstByte(target);
+        };
+        ChecksumCopyEngine engine = new ChecksumCopyEngine(ChecksumAlgorithm.CRC32, false, checksums::put, 1024);
+
+        engine.copy(source, target, corruptingListener);
+
+        assertTrue(checksums.containsKey(target));
+        byte[] targetContent = Files.readAllBytes(target);
+        assertEquals(content.length, targetContent.length);
+        assertFalse(Arrays.equals(content, targetContent));
+    }
+
+    private void overwriteFirstByte(Path file) {
+        try (OutputStream output = Files.newOutputStream(file, WRITE)) {
+            output.write(Files.readAllBytes(file)[0] ^ 0xFF);
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private void append(Path file, byte[] bytes) {
+        try {
+            Files.write(file, bytes, APPEND);
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
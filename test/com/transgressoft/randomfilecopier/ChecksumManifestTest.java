@@ -0,0 +1,150 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+import java.util.zip.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class ChecksumManifestTest {
+
+    Path source;
+    Path destination;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        source = Files.createTempDirectory("manifestSource");
+        destination = Files.createTempDirectory("manifestDestination");
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        deleteTree(source);
+        deleteTree(destination);
+    }
+
+    @Test
+    @DisplayName ("Reserves a name that no copied file takes")
+    public void reservesName() throws IOException {
+        Files.write(destination.resolve("CHECKSUMS.crc32"), "previous job\n".getBytes());
+        DestinationDirectories destinationDirectories =
+                new DestinationDirectories(destination, DestinationLayout.FLAT, 1, 0);
+        ChecksumManifest manifest = new ChecksumManifest(destination, ChecksumAlgorithm.CRC32);
+
+        manifest.reserveName(destinationDirectories);
+        Path copiedTarget = destinationDirectories.reserveTarget(source.resolve("CHECKSUMS(1).crc32"));
+
+        assertEquals(destination.resolve("CHECKSUMS(1).crc32"), manifest.getManifestFile());
+        assertNotEquals(manifest.getManifestFile(), copiedTarget);
+        assertEquals("previous job\n", new String(Files.readAllBytes(destination.resolve("CHECKSUMS.crc32"))));
+    }
+
+    @Test
+    @DisplayName ("Writes a line per file with paths relative to the destination")
+    public void writesLines() throws IOException {
+        DestinationDirectories destinationDirectories =
+                new DestinationDirectories(destination, DestinationLayout.FLAT, 1, 0);
+        ChecksumManifest manifest = new ChecksumManifest(destination, ChecksumAlgorithm.SHA_256);
+        manifest.reserveName(destinationDirectories);
+        assertFalse(Files.exists(manifest.getManifestFile()));
+
+        manifest.add(destination.resolve("0001").resolve("song.mp3"), "abcd");
+        manifest.add(destination.resolve("cover.jpg"), "ef01");
+        manifest.close();
+
+        assertEquals(destination.resolve("CHECKSUMS.sha256"), manifest.getManifestFile());
+        assertEquals("abcd  0001/song.mp3\nef01  cover.jpg\n",
+                     new String(Files.readAllBytes(manifest.getManifestFile()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName ("Lists the CRC32 of the copied files without clashing with them")
+    public void listsCopiedFiles() throws IOException {
+        Files.write(source.resolve("song.txt"), "song content".getBytes());
+        Files.write(source.resolve("CHECKSUMS.crc32"), "a source file".getBytes());
+        RandomFileCopier copier = new RandomFileCopier(source, destination, 0, null);
+        copier.setChecksum(ChecksumAlgorithm.CRC32, true);
+
+        copier.randomCopy();
+
+        assertEquals("a source file", new String(Files.readAllBytes(destination.resolve("CHECKSUMS(1).crc32"))));
+        Set<String> manifestLines = new HashSet<>(Files.readAllLines(destination.resolve("CHECKSUMS.crc32")));
+        Set<String> expectedLines = new HashSet<>(Arrays.asList(manifestLine("song.txt"),
+                                                                manifestLine("CHECKSUMS(1).crc32")));
+        assertEquals(expectedLines, manifestLines);
+    }
+
+    @Test
+    @DisplayName ("Reports a file corrupted in the destination as failed and leaves it out of the manifest")
+    public void leavesOutCorruptedFiles() throws IOException {
+        Files.write(source.resolve("corrupted.txt"), "content corrupted in the destination".getBytes());
+        RandomFileCopier copier = new RandomFileCopier(source, destination, 0, null);
+        copier.setChecksum(ChecksumAlgorithm.CRC32, true);
+        copier.setCopyWorkers(2);
+        int[] finishedCounts = new int[2];
+        copier.addCopyListener(new CopyListener() {
+
+            @Override
+            public void bytesCopied(long copiedBytes) {
+                Path corruptedTarget = destination.resolve("corrupted.txt");
+                try {
+                    if (Files.exists(corruptedTarget))
+                        Files.write(corruptedTarget, "CONTENT corrupted in the destination".getBytes());
+                }
+                catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            }
+
+            @Override
+            public void jobFinished(int copiedFiles, long copiedBytes, int failedFiles) {
+                finishedCounts[0] = copiedFiles;
+                finishedCounts[1] = failedFiles;
+            }
+        });
+
+        copier.randomCopy();
+
+        assertEquals(0, finishedCounts[0]);
+        assertEquals(1, finishedCounts[1]);
+        assertFalse(Files.exists(destination.resolve("corrupted.txt")));
+        assertFalse(Files.exists(destination.resolve("CHECKSUMS.crc32")));
+    }
+
+    private String manifestLine(String copiedFile) throws IOException {
+        CRC32 crc32 = new CRC32();
+        crc32.update(Files.readAllBytes(destination.resolve(copiedFile)));
+        return String.format("%08x", crc32.getValue()) + "  " + copiedFile;
+    }
+
+    private void deleteTree(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+import org.junit.jupiter.api.*;
+
+import javax.management.*;
+import java.lang.management.*;
+import java.nio.file.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class CopyJobMetricsTest {
+
+    Path source = Paths.get("source");
+    Path destination = Paths.get("destination");
+    FileEntry file = new FileEntry(source.resolve("file.txt"), 100, 0);
+
+    @Test
+    @DisplayName ("Counts the events of a job")
+    public void countsEvents() {
+        CopyJobMetrics metrics = new CopyJobMetrics(source, destination, () -> 3, () -> 2);
+        assertEquals("STARTED", metrics.getPhase());
+
+        metrics.scanStarted();
+        metrics.scanProgressed(5);
+        assertEquals("SCANNING", metrics.getPhase());
+        assertEquals(5, metrics.getFilesMatched());
+        metrics.scanFinished(10);
+        assertEquals("SELECTING", metrics.getPhase());
+        metrics.fileSelected(file);
+        metrics.fileSelected(file);
+        metrics.copyStarted(2);
+        assertEquals("COPYING", metrics.getPhase());
+        metrics.fileCompleted(file, destination.resolve("file.txt"));
+        metrics.fileFailed(file, new NoSuchFileException("file.txt"));
+
+        assertEquals(3, metrics.getDirectoriesScanned());
+        assertEquals(10, metrics.getFilesMatched());
+        assertEquals(2, metrics.getFilesSelected());
+        assertEquals(1, metrics.getFilesCopied());
+        assertEquals(100, metrics.getBytesCopied());
+        assertEquals(1, metrics.getFailedFiles());
+        assertEquals(2, metrics.getQueueDepth());
+    }
+
+    @Test
+    @DisplayName ("Keeps the final values when the job finishes")
+    public void keepsFinalValues() throws InterruptedException {
+        long[] directories = {4};
+        CopyJobMetrics metrics = new CopyJobMetrics(source, destination, () -> directories[0], () -> 2);
+        metrics.scanStarted();
+        metrics.bytesCopied(1000);
+        metrics.jobFinished(0, 0, 0);
+        directories[0] = 0;
+
+        assertEquals("FINISHED", metrics.getPhase());
+        assertEquals(4, metrics.getDirectoriesScanned());
+        assertEquals(0, metrics.getQueueDepth());
+        assertEquals(0, metrics.getCurrentThroughput());
+        long elapsedMillis = metrics.getElapsedMillis();
+        Thread.sleep(20);
+        assertEquals(elapsedMillis, metrics.getElapsedMillis());
+    }
+
+    @Test
+    @DisplayName ("Stops reading the gauges when the job finishes")
+    public void releasesGauges() {
+        boolean[] finished = {false};
+        CopyJobMetrics metrics = new CopyJobMetrics(source, destination, () -> {
+            assertFalse(finished[0]);
+            return 7;
+        }, () -> {
+            assertFalse(finished[0]);
+            return 3;
+        });
+        assertEquals(3, metrics.getQueueDepth());
+        metrics.jobFinished(0, 0, 0);
+        finished[0] = true;
+
+        assertEquals(7, metrics.getDirectoriesScanned());
+        assertEquals(0, metrics.getQueueDepth());
+    }
+
+    @Test
+    @DisplayName ("Registers the MBean of the job and keeps only the last jobs")
+    public void registersMBean() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName firstName = new CopyJobMetrics(source, destination, () -> 0, () -> 0).register();
+
+        assertTrue(server.isRegistered(firstName));
+        assertEquals(source.toString(), server.getAttribute(firstName, "SourceDirectory"));
+        assertEquals("STARTED", server.getAttribute(firstName, "Phase"));
+
+        for (int i = 0; i < CopyJobMetrics.RETAINED_JOBS; i++)
+            new CopyJobMetrics(source, destination, () -> 0, () -> 0).register();
+        assertFalse(server.isRegistered(firstName));
+    }
+}
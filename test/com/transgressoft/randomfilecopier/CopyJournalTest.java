@@ -0,0 +1,181 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static java.nio.file.StandardOpenOption.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class CopyJournalTest {
+
+    Path directory;
+    Path journalFile;
+    List<FileEntry> plan;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        directory = Files.createTempDirectory("copyJournal");
+        journalFile = CopyJournal.journalFileIn(directory);
+        plan = Arrays.asList(new FileEntry(directory.resolve("first.mp3"), 1000, 10),
+                             new FileEntry(directory.resolve("second.mp3"), 2000, 20),
+                             new FileEntry(directory.resolve("third.mp3"), 3000, 30));
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files)
+                Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    @DisplayName ("Reads the plan of a new journal")
+    public void readsPlan() throws IOException {
+        CopyJournal.create(journalFile, plan).close();
+
+        CopyJournal.State state = CopyJournal.read(journalFile);
+
+        assertEquals(plan, state.getPlan());
+        for (int i = 0; i < plan.size(); i++) {
+            assertNull(state.getTargetName(i));
+            assertEquals(0, state.getOffset(i));
+            assertFalse(state.isCompleted(i));
+        }
+        assertFalse(Files.exists(journalFile.resolveSibling(journalFile.getFileName() + ".tmp")));
+    }
+
+    @Test
+    @DisplayName ("Reads the started, progressed and completed records")
+    public void readsRecords() throws IOException {
+        try (CopyJournal journal = CopyJournal.create(journalFile, plan)) {
+            journal.started(plan.get(0).getPath(), "first.mp3");
+            journal.progressed(plan.get(0).getPath(), 500);
+            journal.progressed(plan.get(0).getPath(), 1000);
+            journal.completed(plan.get(0).getPath());
+            journal.started(plan.get(1).getPath(), "second(1).mp3");
+            journal.progressed(plan.get(1).getPath(), 700);
+            journal.completed(directory.resolve("unplanned.mp3"));
+        }
+
+        CopyJournal.State state = CopyJournal.read(journalFile);
+
+        assertEquals("first.mp3", state.getTargetName(0));
+        assertEquals(1000, state.getOffset(0));
+        assertTrue(state.isCompleted(0));
+        assertEquals("second(1).mp3", state.getTargetName(1));
+        assertEquals(700, state.getOffset(1));
+        assertFalse(state.isCompleted(1));
+        assertNull(state.getTargetName(2));
+    }
+
+    @Test
+    @DisplayName ("Appends the start of a copy before the journal is closed")
+    public void appendsStartRightAway() throws IOException {
+        try (CopyJournal journal = CopyJournal.create(journalFile, plan)) {
+            journal.started(plan.get(2).getPath(), "third.mp3");
+
+            CopyJournal.State state = CopyJournal.read(journalFile);
+
+            assertEquals("third.mp3", state.getTargetName(2));
+        }
+    }
+
+    @Test
+    @DisplayName ("Ignores a record cut halfway by a crash")
+    public void ignoresRecordCutHalfway() throws IOException {
+        try (CopyJournal journal = CopyJournal.create(journalFile, plan)) {
+            journal.started(plan.get(0).getPath(), "first.mp3");
+            journal.progressed(plan.get(0).getPath(), 400);
+            journal.progressed(plan.get(0).getPath(), 800);
+        }
+        truncate(journalFile, Files.size(journalFile) - 3);
+
+        CopyJournal.State state = CopyJournal.read(journalFile);
+
+        assertEquals("first.mp3", state.getTargetName(0));
+        assertEquals(400, state.getOffset(0));
+    }
+
+    @Test
+    @DisplayName ("Resumes a journal after a crash dropping the record cut halfway")
+    public void resumesAfterCrash() throws IOException {
+        try (CopyJournal journal = CopyJournal.create(journalFile, plan)) {
+            journal.started(plan.get(0).getPath(), "first.mp3");
+            journal.completed(plan.get(0).getPath());
+            journal.started(plan.get(1).getPath(), "second.mp3");
+            journal.progressed(plan.get(1).getPath(), 1500);
+        }
+        truncate(journalFile, Files.size(journalFile) - 1);
+        CopyJournal.State crashedState = CopyJournal.read(journalFile);
+        assertEquals(0, crashedState.getOffset(1));
+
+        try (CopyJournal journal = CopyJournal.reopen(journalFile, crashedState)) {
+            journal.progressed(plan.get(1).getPath(), 2000);
+            journal.completed(plan.get(1).getPath());
+            journal.started(plan.get(2).getPath(), "third.mp3");
+        }
+        CopyJournal.State state = CopyJournal.read(journalFile);
+
+        assertTrue(state.isCompleted(0));
+        assertEquals("second.mp3", state.getTargetName(1));
+        assertEquals(2000, state.getOffset(1));
+        assertTrue(state.isCompleted(1));
+        assertEquals("third.mp3", state.getTargetName(2));
+        assertFalse(state.isCompleted(2));
+    }
+
+    @Test
+    @DisplayName ("Replaces the previous journal when a job is created")
+    public void replacesPreviousJournal() throws IOException {
+        try (CopyJournal journal = CopyJournal.create(journalFile, plan)) {
+            journal.started(plan.get(0).getPath(), "first.mp3");
+        }
+        List<FileEntry> newPlan = Collections.singletonList(new FileEntry(directory.resolve("other.mp3"), 1, 1));
+        CopyJournal.create(journalFile, newPlan).close();
+
+        CopyJournal.State state = CopyJournal.read(journalFile);
+
+        assertEquals(newPlan, state.getPlan());
+        assertNull(state.getTargetName(0));
+    }
+
+    @Test
+    @DisplayName ("Rejects a file that is not a journal")
+    public void rejectsUnknownFormat() throws IOException {
+        Files.write(journalFile, "not a journal".getBytes());
+
+        assertThrows(IOException.class, () -> CopyJournal.read(journalFile));
+    }
+
+    private void truncate(Path file, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, WRITE)) {
+            channel.truncate(length);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class CopyPerformanceRecorderTest {
+
+    FileEntry smallFile = new FileEntry(Paths.get("music", "small.mp3"), 1024, 0);
+    FileEntry largeFile = new FileEntry(Paths.get("music", "large.flac"), 32L << 20, 0);
+
+    @Test
+    @DisplayName ("Reports the copy time without the waits for the rate limit")
+    public void excludesRateLimitWaits() {
+        CopyPerformanceRecorder recorder = new CopyPerformanceRecorder();
+        recorder.record(smallFile, TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(8));
+        recorder.record(largeFile, TimeUnit.MILLISECONDS.toNanos(500), TimeUnit.MILLISECONDS.toNanos(400));
+
+        CopyPerformanceReport report = recorder.report();
+
+        assertEquals(2, report.getCopiedFiles());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), report.getMaxLatencyNanos(), TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(408), report.getRateLimitWaitNanos());
+        assertEquals(largeFile, report.getSlowestFiles().get(0).getFile());
+        assertEquals(2, report.getSizeClasses().size());
+        assertTrue(report.toLines().contains("Waits for the rate limit, excluded from the copy time: 408.0 ms"));
+    }
+
+    @Test
+    @DisplayName ("Leaves out the rate limit line of an unthrottled job")
+    public void omitsRateLimitLineWhenUnthrottled() {
+        CopyPerformanceRecorder recorder = new CopyPerformanceRecorder();
+        recorder.record(smallFile, TimeUnit.MILLISECONDS.toNanos(3), 0);
+
+        CopyPerformanceReport report = recorder.report();
+
+        assertEquals(0, report.getRateLimitWaitNanos());
+        assertTrue(report.toLines().stream().noneMatch(line -> line.contains("rate limit")));
+    }
+}
@@ -0,0 +1,83 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class LinkingCopyEngineTest {
+
+    Path directory;
+    Path source;
+    List<Long> notifiedBytes = new ArrayList<>();
+    CopyProgressListener listener = (file, chunkBytes, copiedBytes, fileSize) -> notifiedBytes.add(chunkBytes);
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        directory = Files.createTempDirectory("linkingEngine");
+        source = Files.write(directory.resolve("source.txt"), "content".getBytes());
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files)
+                Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    @DisplayName ("Hard links the file without copying bytes")
+    public void hardLinksFile() throws IOException {
+        Path target = directory.resolve("target.txt");
+        new LinkingCopyEngine(new FilesCopyEngine(), true, false).copy(source, target, listener);
+
+        assertTrue(Files.isSameFile(source, target));
+        assertFalse(Files.isSymbolicLink(target));
+        assertEquals(Collections.singletonList(0L), notifiedBytes);
+    }
+
+    @Test
+    @DisplayName ("Copies the file when it can not be linked")
+    public void copiesWhenNotLinked() throws IOException {
+        Path target = directory.resolve("target.txt");
+        new LinkingCopyEngine(new FilesCopyEngine(), false, false).copy(source, target, listener);
+
+        assertFalse(Files.isSameFile(source, target));
+        assertArrayEquals(Files.readAllBytes(source), Files.readAllBytes(target));
+        assertEquals(Collections.singletonList(7L), notifiedBytes);
+    }
+
+    @Test
+    @DisplayName ("Does not overwrite an existing target")
+    public void doesNotOverwriteExistingTarget() throws IOException {
+        Path target = Files.write(directory.resolve("target.txt"), "other".getBytes());
+        CopyEngine engine = new LinkingCopyEngine(new FilesCopyEngine(), true, true);
+
+        assertThrows(FileAlreadyExistsException.class, () -> engine.copy(source, target, listener));
+        assertEquals("other", new String(Files.readAllBytes(target)));
+    }
+}
@@ -0,0 +1,64 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class PartialShuffleSelectorTest {
+
+    PartialShuffleSelector selector = new PartialShuffleSelector(new Random(7));
+    long[] sizes = {10, 20, 30, 40, 50, 60, 70, 80, 90, 100};
+
+    @Test
+    @DisplayName ("Selects the maximum number of distinct candidates")
+    public void selectsMaximumNumberOfDistinctCandidates() {
+        PartialShuffleSelector.Selection selection = selector.select(sizes.length, i -> sizes[i], 4, Long.MAX_VALUE);
+
+        assertEquals(4, selection.getIndexes().length);
+        assertEquals(4, IntStream.of(selection.getIndexes()).distinct().count());
+        assertEquals(IntStream.of(selection.getIndexes()).mapToLong(i -> sizes[i]).sum(), selection.getBytes());
+    }
+
+    @Test
+    @DisplayName ("Selects all candidates when there is no maximum")
+    public void selectsAllCandidatesWithNoMaximum() {
+        for (int run = 0; run < 3; run++) {
+            PartialShuffleSelector.Selection selection = selector.select(sizes.length, i -> sizes[i], 0, Long.MAX_VALUE);
+
+            Set<Integer> selected = IntStream.of(selection.getIndexes()).boxed().collect(Collectors.toSet());
+            assertEquals(sizes.length, selected.size());
+            assertEquals(550, selection.getBytes());
+        }
+    }
+
+    @Test
+    @DisplayName ("Does not exceed the maximum bytes")
+    public void doesNotExceedMaximumBytes() {
+        PartialShuffleSelector.Selection selection = selector.select(sizes.length, i -> sizes[i], 0, 95);
+
+        assertTrue(selection.getBytes() <= 95);
+        assertEquals(0, selector.select(sizes.length, i -> sizes[i], 0, 5).getIndexes().length);
+    }
+}
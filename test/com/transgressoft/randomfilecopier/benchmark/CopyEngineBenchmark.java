@@ -0,0 +1,124 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier.benchmark;
+
+import com.transgressoft.randomfilecopier.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Compares the copy engines copying a synthetic corpus of small files, of 1 to 16 KB,
+ * with a single thread. Each measured iteration copies the whole corpus to an empty directory.
+ *
+ * <p>Run it with the test classpath, for example from the IDE, through its {@code main} method.
+ * The corpus is written to the temporary directory and deleted at the end.</p>
+ *
+ * @author Octavio Calleya
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.SingleShotTime)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 2)
+@Measurement (iterations = 5)
+@Fork (1)
+public class CopyEngineBenchmark {
+
+    private static final CopyProgressListener NO_PROGRESS = (source, chunkBytes, copiedBytes, fileSize) -> {};
+
+    @Param ({"100000"})
+    int corpusFiles;
+
+    @Param ({"files", "channel", "pooled"})
+    String engineName;
+
+    Path corpusDirectory;
+    Path destinationDirectory;
+    List<Path> corpus;
+    CopyEngine engine;
+
+    @Setup (Level.Trial)
+    public void createCorpus() throws IOException {
+        Random random = new Random(42);
+        corpusDirectory = Files.createTempDirectory("copyEngineBenchmark");
+        corpus = new ArrayList<>(corpusFiles);
+        for (int i = 0; i < corpusFiles; i++) {
+            byte[] content = new byte[1024 + random.nextInt(15 * 1024)];
+            random.nextBytes(content);
+            corpus.add(Files.write(corpusDirectory.resolve("file" + i + ".bin"), content));
+        }
+        switch (engineName) {
+            case "files":
+                engine = new FilesCopyEngine();
+                break;
+            case "channel":
+                engine = new ChannelCopyEngine();
+                break;
+            default:
+                engine = new PooledBufferCopyEngine();
+        }
+    }
+
+    @Setup (Level.Iteration)
+    public void createDestination() throws IOException {
+        destinationDirectory = Files.createTempDirectory("copyEngineBenchmarkDestination");
+    }
+
+    @Benchmark
+    public void copyCorpus() throws IOException {
+        for (Path file : corpus)
+            engine.copy(file, destinationDirectory.resolve(file.getFileName()), NO_PROGRESS);
+    }
+
+    @TearDown (Level.Iteration)
+    public void deleteDestination() throws IOException {
+        deleteDirectory(destinationDirectory);
+    }
+
+    @TearDown (Level.Trial)
+    public void deleteCorpus() throws IOException {
+        deleteDirectory(corpusDirectory);
+    }
+
+    private void deleteDirectory(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exception) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder().include(CopyEngineBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,108 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier.benchmark;
+
+import com.transgressoft.randomfilecopier.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Compares the former selection loop of {@link RandomFileCopier}, that removes each drawn
+ * candidate from an {@link ArrayList} and queries the usable space of the destination on every
+ * iteration, against the {@link PartialShuffleSelector}. The selector is created once and reused across
+ * invocations, as the copier reuses it across jobs.
+ *
+ * <p>Run it with the test classpath, for example from the IDE, through its {@code main} method.</p>
+ *
+ * @author Octavio Calleya
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3)
+@Measurement (iterations = 5)
+@Fork (1)
+public class SelectionBenchmark {
+
+    @Param ({"10000", "100000"})
+    int candidates;
+
+    @Param ({"100", "0"})
+    int maxFiles;
+
+    long[] sizes;
+    List<Long> legacyCandidates;
+    File destination;
+    Random random = new Random(42);
+    PartialShuffleSelector selector;
+
+    @Setup
+    public void setup() throws IOException {
+        destination = Files.createTempDirectory("selectionBenchmark").toFile();
+        destination.deleteOnExit();
+        sizes = new long[candidates];
+        legacyCandidates = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            sizes[i] = 1 + random.nextInt(10 * 1024 * 1024);
+            legacyCandidates.add(sizes[i]);
+        }
+        selector = new PartialShuffleSelector(random);
+    }
+
+    @Benchmark
+    public List<Long> legacyLoop() {
+        List<Long> filesInSource = new ArrayList<>(legacyCandidates);
+        List<Long> selectedFiles = new ArrayList<>();
+        long copiedBytes = 0;
+        long maxBytes = Long.MAX_VALUE;
+        while (continueLegacySelection(filesInSource, selectedFiles, copiedBytes, maxBytes)) {
+            Long randomSourceFile = filesInSource.get(random.nextInt(filesInSource.size()));
+            if (randomSourceFile <= Math.min(maxBytes, destination.getUsableSpace()) - copiedBytes) {
+                selectedFiles.add(randomSourceFile);
+                copiedBytes += randomSourceFile;
+            }
+            filesInSource.remove(randomSourceFile);
+        }
+        return selectedFiles;
+    }
+
+    private boolean continueLegacySelection(List<Long> filesInSource, List<Long> selectedFiles, long copiedBytes,
+                                            long maxBytes) {
+        long usableMaxBytes = Math.min(maxBytes, destination.getUsableSpace());
+        if (filesInSource.size() < maxFiles || maxFiles == 0)
+            return copiedBytes < usableMaxBytes && ! filesInSource.isEmpty();
+        else
+            return selectedFiles.size() < maxFiles;
+    }
+
+    @Benchmark
+    public PartialShuffleSelector.Selection partialShuffle() {
+        long maxBytes = Math.min(Long.MAX_VALUE, destination.getUsableSpace());
+        return selector.select(candidates, index -> sizes[index], maxFiles, maxBytes);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder().include(SelectionBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
@@ -6,12 +6,17 @@ import org.junit.jupiter.api.extension.*;
 import org.mockito.*;
 import org.testfx.api.*;
 import org.testfx.framework.junit5.*;
+import org.testfx.matcher.control.*;
+import org.testfx.util.*;
 
 import java.io.*;
 import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
 import javafx.application.*;
 import javafx.fxml.*;
 import javafx.scene.*;
+import javafx.scene.control.*;
 import javafx.scene.control.Alert.*;
 import javafx.scene.input.*;
 import javafx.stage.*;
@@ -90,7 +95,7 @@ public class RandomFileCopierFxTest {
 
         robot.doubleClickOn("#maxBytesTF");
         robot.write(String.valueOf(destination.getUsableSpace() + 1));
-        robot.clickOn("#logTA");
+        robot.clickOn("#logLV");
 
         verifyThat("#maxBytesTF", hasText(String.valueOf(destination.getUsableSpace())));
     }
@@ -101,11 +106,11 @@ public class RandomFileCopierFxTest {
         robot.doubleClickOn("#maxFilesTF").write("notanumber");
         verifyThat("#maxFilesTF", hasText("0"));
 
-        robot.doubleClickOn("#maxFilesTF").write("notanumber").clickOn("#logTA");
+        robot.doubleClickOn("#maxFilesTF").write("notanumber").clickOn("#logLV");
         verifyThat("#maxFilesTF", hasText("0"));
 
         robot.doubleClickOn("#maxFilesTF").push(new KeyCodeCombination(KeyCode.V, KeyCombination.META_DOWN));
-        robot.clickOn("#logTA");
+        robot.clickOn("#logLV");
         verifyThat("#maxFilesTF", hasText("0"));
     }
 
@@ -116,11 +121,11 @@ public class RandomFileCopierFxTest {
         verifyThat("#maxBytesTF", hasText("0"));
 
 
-        robot.doubleClickOn("#maxBytesTF").write("notanumber").clickOn("#logTA");
+        robot.doubleClickOn("#maxBytesTF").write("notanumber").clickOn("#logLV");
         verifyThat("#maxBytesTF", hasText("0"));
 
         robot.doubleClickOn("#maxBytesTF").push(new KeyCodeCombination(KeyCode.V, KeyCombination.META_DOWN));
-        robot.clickOn("#logTA");
+        robot.clickOn("#logLV");
         verifyThat("#maxBytesTF", hasText("0"));
     }
 
@@ -139,7 +144,7 @@ public class RandomFileCopierFxTest {
         robot.clickOn(controller.getExtensionsComboBox());
         Platform.runLater(() -> controller.getExtensionsComboBox().getCheckModel().check(".txt"));
 
-        verifyThat("#logTA", hasText(""));
+        verifyThat("#logLV", ListViewMatchers.isEmpty());
         verifyThat("#copyStopBT", isEnabled());
 
         verifyThat("#copyStopBT", hasText("Copy!"));
@@ -170,7 +175,7 @@ public class RandomFileCopierFxTest {
         robot.clickOn(controller.getExtensionsComboBox());
         Platform.runLater(() -> controller.getExtensionsComboBox().getCheckModel().check(".txt"));
 
-        verifyThat("#logTA", hasText(""));
+        verifyThat("#logLV", ListViewMatchers.isEmpty());
         verifyThat("#copyStopBT", isEnabled());
         verifyThat("#copyStopBT", hasText("Copy!"));
 
@@ -180,7 +185,7 @@ public class RandomFileCopierFxTest {
 
     @Test
     @DisplayName ("Cope one byte")
-    public void copyOneByte(FxRobot robot) {
+    public void copyOneByte(FxRobot robot) throws TimeoutException {
         robot.clickOn("#openSourceBT");
         verifyThat("#sourceTF", hasText(sourceTestPath.toAbsolutePath().toString()));
 
@@ -192,13 +197,15 @@ public class RandomFileCopierFxTest {
         Platform.runLater(() -> controller.getExtensionsComboBox().getCheckModel().check(".txt"));
 
         verifyThat("#maxBytesTF", hasText("1"));
-        verifyThat("#logTA", hasText(""));
+        verifyThat("#logLV", ListViewMatchers.isEmpty());
         verifyThat("#copyStopBT", isEnabled());
         verifyThat("#copyStopBT", hasText("Copy!"));
 
         robot.clickOn("#copyStopBT");
-        String logMessage = "Scanning source directory...\n10 files found\n";
-        verifyThat("#logTA", hasText(logMessage));
+        List<String> logLines = Arrays.asList("Scanning source directory...", "10 files found");
+        WaitForAsyncUtils.waitFor(5, TimeUnit.SECONDS,
+                                  () -> logLines.equals(robot.lookup("#logLV").<ListView<String>> query().getItems()));
+        verifyThat("#logLV", ListViewMatchers.hasItems(2));
     }
 
     @Test
@@ -212,7 +219,7 @@ public class RandomFileCopierFxTest {
         verifyThat("#destinationTF", hasText(""));
         verifyThat("#maxFilesTF", hasText("0"));
         verifyThat("#maxBytesTF", hasText("0"));
-        verifyThat("#logTA", hasText(""));
+        verifyThat("#logLV", ListViewMatchers.isEmpty());
         robot.clickOn("#openSourceBT").type(KeyCode.ENTER);
         robot.clickOn("#openDestinationBT").type(KeyCode.ENTER);
     }